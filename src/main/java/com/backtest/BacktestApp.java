@@ -4,45 +4,100 @@ import com.backtest.api.PriceDataRetriever;
 import com.backtest.db.DataRepository;
 import com.backtest.db.DatabaseConnector;
 import com.backtest.db.StockData;
+import com.backtest.engine.BacktestResult;
 import com.backtest.engine.ExecutionEngine;
+import com.backtest.engine.ResultCache;
 import com.backtest.strategy.Strategy;
 import com.backtest.strategy.StrategyFactory;
+import com.backtest.strategy.StrategyParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Interactive backtest of one symbol when started without arguments. With arguments it runs without prompts, e.g.
+ * <pre>
+ *   --ticker=AAPL --strategy=SMA --window=10 --stop-loss=0.1 --take-profit=0.2 --from=2024-01-02 --to=2024-11-20 --cash=10000
+ * </pre>
+ * A scripted run only downloads the symbol when it isn't stored yet, or with --refresh; --offline never downloads.
+ * Together with the result cache, a repeated run only opens the database and reads one stored result.
+ */
 public class BacktestApp {
     private static final Logger LOG = LoggerFactory.getLogger(BacktestApp.class);
     private static final String DEFAULT_TICKER = "AAPL";
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws SQLException {
+        if (args.length > 0) {
+            runScripted(SweepApp.parseOptions(args));
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         String ticker = promptForTicker(scanner);
         initializeDataBase();
 
         List<StockData> historicalPriceData = fetchData(ticker);
         if (historicalPriceData.isEmpty()) return; // Exit the program if data is empty
-        insertHistoricalPriceData(ticker, historicalPriceData);
+        replaceHistoricalPriceData(ticker, historicalPriceData);
 
         Date[] availableDateRange = getAvailableDateRange(ticker);
         Date[] selectedDateRange = promptForDateRange(scanner, availableDateRange);
+        if (selectedDateRange.length == 0) return;
 
-        List<StockData> queriedData = DataRepository.retrieveHistoricalPriceData(ticker, selectedDateRange[0], selectedDateRange[1]);
-        if (queriedData.isEmpty()) return;
-
-        Strategy strategy = selectStrategy(scanner);
+        String strategyName = selectStrategy(scanner);
+        StrategyParameters parameters = promptForStrategyParameters(scanner);
 
         double initialCashBalance = promptForInitialCashBalance(scanner);
-        executeBacktest(strategy, queriedData, initialCashBalance);
+        executeBacktest(strategyName, parameters, ticker, selectedDateRange, initialCashBalance);
     }
 
 
+    private static void runScripted(Map<String, String> options) throws SQLException {
+        long start = System.nanoTime();
+        String ticker = options.getOrDefault("ticker", DEFAULT_TICKER).toUpperCase().trim();
+        // Keep the database open for the whole run, H2 would close and reopen it on every connection otherwise
+        Connection keepOpen = DatabaseConnector.connect();
+        try {
+            initializeDataBase();
+            // A primary key lookup, unlike the date range query
+            boolean stored = DataRepository.getSeriesFingerprint(ticker).getRowCount() > 0;
+            if (!stored || options.containsKey("refresh")) {
+                if (options.containsKey("offline")) {
+                    LOG.error("No stored data for {} and --offline is set", ticker);
+                    return;
+                }
+                List<StockData> historicalPriceData = fetchData(ticker);
+                if (historicalPriceData.isEmpty()) return;
+                replaceHistoricalPriceData(ticker, historicalPriceData);
+            }
+
+            Date[] dateRange = {Date.valueOf(options.getOrDefault("from", "2024-01-02")),
+                    Date.valueOf(options.getOrDefault("to", "2024-11-20"))};
+            StrategyParameters parameters = StrategyParameters.of(
+                    Integer.parseInt(options.getOrDefault("window", String.valueOf(Strategy.OBSERVATION_WINDOW))),
+                    Double.parseDouble(options.getOrDefault("stop-loss", String.valueOf(Strategy.STOP_LOSS_PERCENT))),
+                    Double.parseDouble(options.getOrDefault("take-profit", String.valueOf(Strategy.TAKE_PROFIT_PERCENT))));
+            executeBacktest(options.getOrDefault("strategy", "SMA"), parameters, ticker, dateRange,
+                    Double.parseDouble(options.getOrDefault("cash", "10000")));
+        } finally {
+            keepOpen.close();
+        }
+        LOG.info("Done in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Create the tables on first use, existing tables and their data are kept
+     */
     private static void initializeDataBase() {
         try {
-            DatabaseConnector.createHistoricalDataTable();
+            DatabaseConnector.createSchemaIfMissing();
         } catch (Exception e) {
             LOG.error("Could not setup the database", e);
         }
@@ -81,12 +136,12 @@ public class BacktestApp {
     }
 
     /**
-     * Insert the fetched historical price data into database.
+     * Store the fetched historical price data in the database, replacing what was stored for the ticker before.
      * @param ticker
      * @param historicalPriceData
      */
-    private static void insertHistoricalPriceData(String ticker, List<StockData>historicalPriceData) {
-        DataRepository.insertHistoricalPriceData(ticker, historicalPriceData);
+    private static void replaceHistoricalPriceData(String ticker, List<StockData>historicalPriceData) {
+        DataRepository.replaceHistoricalPriceData(ticker, historicalPriceData);
     }
 
     /**
@@ -138,11 +193,11 @@ public class BacktestApp {
     }
 
     /**
-     * Provide available strategies for user to select with customized params
+     * Provide available strategies for user to select
      * @param scanner
-     * @return the selected strategy by user, if not input, the default strategy is SMA.
+     * @return the name of the selected strategy by user, if not input, the default strategy is SMA.
      */
-    private static Strategy selectStrategy(Scanner scanner) {
+    private static String selectStrategy(Scanner scanner) {
         LOG.info("Available Strategies: ");
         List<String> strategies = StrategyFactory.getAvailableStrategies();
         strategies.forEach(strategy -> LOG.info("{}", strategy));
@@ -154,6 +209,15 @@ public class BacktestApp {
         if (strategyName.isEmpty()) {
             strategyName = "sma";
         }
+        return strategyName;
+    }
+
+    /**
+     * Prompt for the customized strategy params
+     * @param scanner
+     * @return the entered params, defaults for those without valid input
+     */
+    private static StrategyParameters promptForStrategyParameters(Scanner scanner) {
 
         // Choose observation window
         LOG.info("Enter the observation window (default is set to 10 days, the value must be at least 5 days: ");
@@ -165,6 +229,7 @@ public class BacktestApp {
                 observationWindow = Integer.parseInt(input);
                 if (observationWindow < 5) {
                     LOG.error("Invalid observation window, it must be at least 5. 10 has been selected as default.");
+                    observationWindow = Strategy.OBSERVATION_WINDOW;
                 }
             } catch (NumberFormatException e) {
                 LOG.error("Invalid input, it should be a numeric value. 10 has been selected as moving average window.");
@@ -179,6 +244,10 @@ public class BacktestApp {
         if (!stopLossInput.isEmpty()) {
             try {
                 stopLossPercent = Double.parseDouble(stopLossInput);
+                if (stopLossPercent < 0 || stopLossPercent > 1) {
+                    LOG.error("Invalid stop loss input, must be between 0.00 and 1.00. Default 0.10 has been selected.");
+                    stopLossPercent = Strategy.STOP_LOSS_PERCENT;
+                }
             } catch (NumberFormatException e) {
                 LOG.error("Invalid stop loss input, must be a numeric value. Default 0.10 has been selected.");
             }
@@ -192,14 +261,17 @@ public class BacktestApp {
         if (!takeProfitInput.isEmpty()) {
             try {
                 takeProfitPercent = Double.parseDouble(takeProfitInput);
+                if (takeProfitPercent < 0 || takeProfitPercent > 1) {
+                    LOG.error("Invalid take profit input, must be between 0.00 and 1.00. Default 0.20 has been selected.");
+                    takeProfitPercent = Strategy.TAKE_PROFIT_PERCENT;
+                }
             } catch (NumberFormatException e) {
                 LOG.error("Invalid take profit input, must be a numeric value. Default 0.20 has been selected.");
             }
         }
 
-        // Create strategy with customized params
         LOG.info("Stop loss percent: {}%; Take profit percent: {}%", stopLossPercent * 100, takeProfitPercent * 100);
-        return StrategyFactory.getStrategy(strategyName, observationWindow, stopLossPercent, takeProfitPercent);
+        return StrategyParameters.of(observationWindow, stopLossPercent, takeProfitPercent);
     }
 
     /**
@@ -219,14 +291,38 @@ public class BacktestApp {
     }
 
     /**
-     * The function to execute backtest
-     * @param strategy selected strategy name
-     * @param queriedData queried historical price data for the selected company
+     * The function to execute backtest. A result stored by an earlier run on the same data is reused, otherwise
+     * the price data is streamed from the database, so the strategy starts on the first bars while the rest
+     * are still being read.
+     * @param strategyName selected strategy
+     * @param parameters the customized strategy params
+     * @param ticker the company's ticker
+     * @param dateRange the selected start and end date
      * @param initialCashBalance the initial cash balance to run the backtest
      */
-    private static void executeBacktest(Strategy strategy, List<StockData> queriedData, double initialCashBalance) {
+    private static void executeBacktest(String strategyName, StrategyParameters parameters, String ticker, Date[] dateRange, double initialCashBalance) {
+        Strategy strategy = StrategyFactory.getStrategy(strategyName, parameters);
+        boolean[] computed = new boolean[1];
+        BacktestResult result = ResultCache.computeIfAbsent(ticker, dateRange[0], dateRange[1],
+                StrategyFactory.getStrategyKey(strategyName, parameters), initialCashBalance, () -> {
+                    computed[0] = true;
+                    return runBacktest(strategy, ticker, dateRange, initialCashBalance);
+                });
+        if (result != null && !computed[0]) {
+            ExecutionEngine.summarizeResults(result);
+        }
+    }
+
+    private static BacktestResult runBacktest(Strategy strategy, String ticker, Date[] dateRange, double initialCashBalance) {
         ExecutionEngine engine = new ExecutionEngine(initialCashBalance);
-        engine.runBackTest(strategy, queriedData);
+        try (Stream<StockData> marketData = DataRepository.streamHistoricalPriceData(ticker, dateRange[0], dateRange[1])) {
+            return engine.runBackTest(strategy, marketData);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Not enough price data for {} in the selected date range", ticker);
+        } catch (IllegalStateException e) {
+            LOG.error("Failed to read price data", e);
+        }
+        return null;
     }
 
 }
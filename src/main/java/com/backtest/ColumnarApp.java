@@ -0,0 +1,79 @@
+package com.backtest;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.DatabaseConnector;
+import com.backtest.db.IngestionPipeline;
+import com.backtest.db.PriceSeries;
+import com.backtest.io.PriceFileReader;
+import com.backtest.io.PriceFileWriter;
+import com.backtest.io.ResultFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves data between the database and columnar files, e.g.
+ * <pre>
+ *   --export=prices.bcol [--symbols=AAPL,MSFT]     all stored bars, or those of the given symbols
+ *   --import=prices.bcol [--writers=4]             replaces the stored bars of every symbol in the file
+ *   --results=results.bcol --csv=results.csv       converts exported sweep results to CSV
+ * </pre>
+ */
+public class ColumnarApp {
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnarApp.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        long start = System.nanoTime();
+        if (options.containsKey("export")) {
+            List<String> symbols = options.containsKey("symbols")
+                    ? List.of(options.get("symbols").toUpperCase().split(","))
+                    : DataRepository.getSymbols();
+            try (PriceFileWriter writer = new PriceFileWriter(Path.of(options.get("export")))) {
+                for (String symbol : symbols) {
+                    Date[] range = DataRepository.getAvailableDateRange(symbol);
+                    if (range[0] == null) {
+                        LOG.warn("No stored data for {}", symbol);
+                        continue;
+                    }
+                    writer.append(PriceSeries.of(symbol, DataRepository.retrievePriceData(symbol, range[0], range[1])));
+                }
+                LOG.info("Exported {} bars of {} symbols to {}", writer.getRowsWritten(), symbols.size(), options.get("export"));
+            }
+        } else if (options.containsKey("import")) {
+            DatabaseConnector.createSchemaIfMissing();
+            int writers = Integer.parseInt(options.getOrDefault("writers", "4"));
+            long rows = 0;
+            try (PriceFileReader reader = new PriceFileReader(Path.of(options.get("import")))) {
+                List<PriceSeries> group;
+                while ((group = reader.nextRowGroup()) != null) {
+                    Map<String, PriceSeries> bySymbol = new LinkedHashMap<>();
+                    group.forEach(series -> bySymbol.put(series.getSymbol(), series));
+                    IngestionPipeline pipeline = new IngestionPipeline(writers, 5000, 8);
+                    rows += pipeline.run(List.copyOf(bySymbol.keySet()), symbol -> bySymbol.get(symbol).toStockData(), writers);
+                    pipeline.getFailedSymbols().forEach((symbol, reason) -> LOG.error("Failed to import {}: {}", symbol, reason));
+                }
+            }
+            LOG.info("Imported {} bars from {}", rows, options.get("import"));
+        } else if (options.containsKey("results") && options.containsKey("csv")) {
+            try (BufferedWriter writer = Files.newBufferedWriter(Path.of(options.get("csv")))) {
+                writer.write(SweepApp.CSV_HEADER);
+                writer.newLine();
+                long count = ResultFileReader.forEach(Path.of(options.get("results")), (unit, result) -> SweepApp.writeCsvRow(writer, unit, result));
+                LOG.info("Converted {} results to {}", count, options.get("csv"));
+            }
+        } else {
+            LOG.warn("Please provide --export=file, --import=file or --results=file --csv=file");
+            return;
+        }
+        LOG.info("Done in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
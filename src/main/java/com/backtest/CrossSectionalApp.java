@@ -0,0 +1,90 @@
+package com.backtest;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.PriceMatrix;
+import com.backtest.db.PriceSeries;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.PortfolioBacktest;
+import com.backtest.io.PriceFileReader;
+import com.backtest.strategy.cross.CrossSectionalStrategy;
+import com.backtest.strategy.cross.MomentumStrategy;
+import com.backtest.strategy.cross.PairsStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backtest cross-sectional strategies on a universe of symbols, e.g.
+ * <pre>
+ *   --strategy=MOMENTUM --symbols=AAPL,MSFT,NVDA --lookback=60 --top=2 --rebalance=20
+ *   --strategy=PAIRS --pair=KO,PEP --window=60 --entry-z=2 --exit-z=0.5 --min-correlation=0.5
+ * </pre>
+ * The universe is every stored symbol unless --symbols is given. --data=prices.bcol reads it from a columnar
+ * file instead of the database.
+ */
+public class CrossSectionalApp {
+    private static final Logger LOG = LoggerFactory.getLogger(CrossSectionalApp.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        LocalDate from = LocalDate.parse(options.getOrDefault("from", "2024-01-02"));
+        LocalDate to = LocalDate.parse(options.getOrDefault("to", "2024-11-20"));
+        String name = options.getOrDefault("strategy", "MOMENTUM").toUpperCase();
+
+        CrossSectionalStrategy strategy;
+        List<String> symbols;
+        if ("PAIRS".equals(name)) {
+            if (!options.containsKey("pair")) {
+                LOG.warn("Please provide the pair with --pair=FIRST,SECOND");
+                return;
+            }
+            symbols = List.of(options.get("pair").toUpperCase().split(","));
+            if (symbols.size() != 2) {
+                LOG.warn("A pair has two symbols but got {}", symbols);
+                return;
+            }
+            strategy = new PairsStrategy(symbols.get(0), symbols.get(1),
+                    Integer.parseInt(options.getOrDefault("window", "60")),
+                    Double.parseDouble(options.getOrDefault("entry-z", "2")),
+                    Double.parseDouble(options.getOrDefault("exit-z", "0.5")),
+                    Double.parseDouble(options.getOrDefault("min-correlation", "0.5")));
+        } else if ("MOMENTUM".equals(name)) {
+            symbols = options.containsKey("symbols") ? List.of(options.get("symbols").toUpperCase().split(",")) : null;
+            strategy = new MomentumStrategy(
+                    Integer.parseInt(options.getOrDefault("lookback", "60")),
+                    Integer.parseInt(options.getOrDefault("top", "10")),
+                    Integer.parseInt(options.getOrDefault("rebalance", "20")));
+        } else {
+            LOG.warn("Unknown strategy '{}', expected MOMENTUM or PAIRS", name);
+            return;
+        }
+
+        PriceMatrix matrix = loadUniverse(options.get("data"), symbols, from, to);
+        LOG.info("Loaded {} symbols over {} dates", matrix.getWidth(), matrix.getLength());
+        PortfolioBacktest backtest = new PortfolioBacktest(Double.parseDouble(options.getOrDefault("cash", "10000")));
+        BacktestResult result = backtest.run(matrix, strategy);
+        LOG.info("{}: {}", strategy, result);
+        LOG.info("{} us per date for {} symbols", String.format("%.2f", backtest.getMicrosPerBar()), matrix.getWidth());
+    }
+
+    private static PriceMatrix loadUniverse(String dataFile, List<String> symbols, LocalDate from, LocalDate to) throws Exception {
+        if (dataFile == null) {
+            return PriceMatrix.load(symbols == null ? DataRepository.getSymbols() : symbols, Date.valueOf(from), Date.valueOf(to));
+        }
+        Map<String, PriceSeries> data = PriceFileReader.readAll(Path.of(dataFile));
+        List<PriceSeries> universe = new ArrayList<>();
+        for (String symbol : symbols == null ? data.keySet() : symbols) {
+            PriceSeries series = data.get(symbol);
+            if (series != null) {
+                universe.add(series.slice(from, to));
+            }
+        }
+        return PriceMatrix.align(universe);
+    }
+}
@@ -0,0 +1,73 @@
+package com.backtest;
+
+import com.backtest.api.PriceDataRetriever;
+import com.backtest.db.DatabaseConnector;
+import com.backtest.db.IngestionPipeline;
+import com.backtest.db.PriceBlockStore;
+import com.backtest.db.StockData;
+import com.backtest.live.ReplayFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk load of price data for many symbols into the database, e.g.
+ * <pre>
+ *   --symbols=AAPL,MSFT,NVDA --fetchers=4 --writers=4 --batch=5000 --queue=8
+ * </pre>
+ * Bars are fetched from the market data API, or read from a file in the replay format with --file=bars.csv
+ * (all symbols of the file unless --symbols is given). Stored rows of a loaded symbol are replaced.
+ * --compact then moves the rows of the loaded symbols into compressed blocks, see {@link PriceBlockStore}.
+ */
+public class IngestApp {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestApp.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        int processors = Runtime.getRuntime().availableProcessors();
+        IngestionPipeline pipeline = new IngestionPipeline(
+                Integer.parseInt(options.getOrDefault("writers", String.valueOf(Math.max(1, processors / 2)))),
+                Integer.parseInt(options.getOrDefault("batch", "5000")),
+                Integer.parseInt(options.getOrDefault("queue", "8")));
+
+        List<String> symbols;
+        IngestionPipeline.PriceSource source;
+        if (options.containsKey("file")) {
+            Map<String, List<StockData>> bars = readFile(Path.of(options.get("file")));
+            symbols = options.containsKey("symbols") ? List.of(options.get("symbols").toUpperCase().split(",")) : new ArrayList<>(bars.keySet());
+            source = symbol -> bars.getOrDefault(symbol, List.of());
+        } else {
+            symbols = List.of(options.getOrDefault("symbols", "AAPL").toUpperCase().split(","));
+            PriceDataRetriever retriever = new PriceDataRetriever();
+            source = retriever::retrievePriceData;
+        }
+
+        DatabaseConnector.createSchemaIfMissing();
+        pipeline.run(symbols, source, Integer.parseInt(options.getOrDefault("fetchers", String.valueOf(processors))));
+        pipeline.getFailedSymbols().forEach((symbol, reason) -> LOG.error("Failed to load {}: {}", symbol, reason));
+
+        if (options.containsKey("compact")) {
+            for (String symbol : symbols) {
+                if (!pipeline.getFailedSymbols().containsKey(symbol)) {
+                    PriceBlockStore.compact(symbol);
+                }
+            }
+        }
+    }
+
+    private static Map<String, List<StockData>> readFile(Path file) throws Exception {
+        Map<String, List<StockData>> bars = new LinkedHashMap<>();
+        try (ReplayFeed feed = new ReplayFeed(file)) {
+            while (feed.hasNext()) {
+                StockData bar = feed.next();
+                bars.computeIfAbsent(bar.getSymbol(), symbol -> new ArrayList<>()).add(bar);
+            }
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,76 @@
+package com.backtest;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.StockData;
+import com.backtest.engine.BacktestResult;
+import com.backtest.live.PaperTradingRuntime;
+import com.backtest.live.ReplayFeed;
+import com.backtest.strategy.Strategy;
+import com.backtest.strategy.StrategyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paper trading on a replayed bar feed, e.g.
+ * <pre>
+ *   --replay=feed.csv --strategy=SMA --window=10 --cash=10000 --interval-micros=100
+ * </pre>
+ * A replay file can be recorded from the database with
+ * {@code --record=feed.csv --symbols=AAPL,MSFT --from=2024-01-02 --to=2024-11-20}.
+ */
+public class PaperTradingApp {
+    private static final Logger LOG = LoggerFactory.getLogger(PaperTradingApp.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        if (options.containsKey("record")) {
+            record(options);
+            return;
+        }
+        if (!options.containsKey("replay")) {
+            LOG.warn("Please provide a replay file with --replay=file.csv, or record one with --record=file.csv");
+            return;
+        }
+
+        Strategy strategy = StrategyFactory.getStrategy(options.getOrDefault("strategy", "SMA"),
+                Integer.parseInt(options.getOrDefault("window", String.valueOf(Strategy.OBSERVATION_WINDOW))),
+                Double.parseDouble(options.getOrDefault("stop-loss", String.valueOf(Strategy.STOP_LOSS_PERCENT))),
+                Double.parseDouble(options.getOrDefault("take-profit", String.valueOf(Strategy.TAKE_PROFIT_PERCENT))));
+        PaperTradingRuntime runtime = new PaperTradingRuntime(strategy,
+                Double.parseDouble(options.getOrDefault("cash", "10000")),
+                Integer.parseInt(options.getOrDefault("ring", "1024")));
+
+        Map<String, BacktestResult> results;
+        try (ReplayFeed feed = new ReplayFeed(Path.of(options.get("replay")))) {
+            results = runtime.run(feed, TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.getOrDefault("interval-micros", "0"))));
+        }
+        for (Map.Entry<String, BacktestResult> entry : results.entrySet()) {
+            LOG.info("{}: {}", entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Write the stored bars of the given symbols as one replay file, interleaved by date
+     */
+    private static void record(Map<String, String> options) throws Exception {
+        Date from = Date.valueOf(LocalDate.parse(options.getOrDefault("from", "2024-01-02")));
+        Date to = Date.valueOf(LocalDate.parse(options.getOrDefault("to", "2024-11-20")));
+        List<StockData> bars = new ArrayList<>();
+        for (String symbol : options.getOrDefault("symbols", "AAPL").toUpperCase().split(",")) {
+            bars.addAll(DataRepository.retrievePriceData(symbol, from, to));
+        }
+        // Stable sort, each symbol's bars stay in order
+        bars.sort(Comparator.comparingInt(StockData::getEpochDay));
+        ReplayFeed.write(Path.of(options.get("record")), bars);
+        LOG.info("Recorded {} bars to {}", bars.size(), options.get("record"));
+    }
+}
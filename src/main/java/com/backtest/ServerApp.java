@@ -0,0 +1,34 @@
+package com.backtest;
+
+import com.backtest.server.BacktestServer;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Serve backtests over HTTP against the price data already stored in the database, e.g.
+ * <pre>
+ *   --port=8080 --max-concurrent=8 --admission-wait-ms=100 --timeout-ms=10000 --cache-symbols=256 --cache-ttl-seconds=300
+ * </pre>
+ * See {@link BacktestServer} for the endpoints.
+ */
+public class ServerApp {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        BacktestServer server = new BacktestServer(
+                Integer.parseInt(options.getOrDefault("port", "8080")),
+                Integer.parseInt(options.getOrDefault("max-concurrent", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Long.parseLong(options.getOrDefault("admission-wait-ms", "100")),
+                Long.parseLong(options.getOrDefault("timeout-ms", "10000")),
+                Integer.parseInt(options.getOrDefault("cache-symbols", "256")),
+                Long.parseLong(options.getOrDefault("cache-ttl-seconds", "300")) * 1000);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            stopped.countDown();
+        }));
+        server.start();
+        stopped.await();
+    }
+}
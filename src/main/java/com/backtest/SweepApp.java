@@ -0,0 +1,129 @@
+package com.backtest;
+
+import com.backtest.db.PriceSeries;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.sweep.CheckpointLog;
+import com.backtest.engine.sweep.OffHeapResultStore;
+import com.backtest.engine.sweep.SweepCoordinator;
+import com.backtest.engine.sweep.SweepGrid;
+import com.backtest.engine.sweep.SweepRunner;
+import com.backtest.engine.sweep.WorkUnit;
+import com.backtest.io.PriceFileReader;
+import com.backtest.io.ResultFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch runner for parameter sweeps over the price data already stored in the database, e.g.
+ * <pre>
+ *   --symbols=AAPL,MSFT --strategies=SMA,EMA --from=2024-01-02 --to=2024-11-20 --grid=5 --checkpoint=sweep.ckpt
+ * </pre>
+ * With --checkpoint, a sweep that was interrupted resumes where it stopped when started again with the same arguments.
+ * With --coordinator the units are handed out to worker JVMs instead of local threads: --spawn=N starts N workers
+ * on this host, others can join with {@code SweepWorker --port=<port>}.
+ * Results are kept off-heap (--result-memory-mb, spilled to disk beyond that); --ranking=file.csv writes all of them,
+ * --export-results=file.bcol writes them in columnar form. --data=prices.bcol reads the price data from a columnar
+ * file instead of the database (local threads only).
+ */
+public class SweepApp {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepApp.class);
+    private static final int TOP_RESULTS = 10;
+    static final String CSV_HEADER = "symbol,strategy,parameters,start_date,end_date,net_profit,net_profit_percent,trades";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<WorkUnit> units = SweepGrid.build(
+                List.of(options.getOrDefault("symbols", "AAPL").toUpperCase().split(",")),
+                List.of(options.getOrDefault("strategies", "SMA,EMA").split(",")),
+                LocalDate.parse(options.getOrDefault("from", "2024-01-02")),
+                LocalDate.parse(options.getOrDefault("to", "2024-11-20")),
+                Double.parseDouble(options.getOrDefault("cash", "10000")),
+                Integer.parseInt(options.getOrDefault("grid", "5")));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        String checkpointFile = options.get("checkpoint");
+        long memoryBudget = Long.parseLong(options.getOrDefault("result-memory-mb", "256")) << 20;
+        try (OffHeapResultStore results = new OffHeapResultStore(TOP_RESULTS, memoryBudget, Path.of(System.getProperty("java.io.tmpdir")));
+             CheckpointLog checkpoint = checkpointFile == null ? null : CheckpointLog.open(Path.of(checkpointFile), 256, 1000)) {
+            if (options.containsKey("coordinator")) {
+                SweepCoordinator coordinator = new SweepCoordinator(Integer.parseInt(options.getOrDefault("port", "9123")), 30_000);
+                coordinator.run(units, checkpoint, results, Integer.parseInt(options.getOrDefault("spawn", "0")), threads);
+            } else if (options.containsKey("data")) {
+                Map<String, PriceSeries> data = PriceFileReader.readAll(Path.of(options.get("data")));
+                new SweepRunner(threads, (symbol, start, end) -> {
+                    PriceSeries series = data.get(symbol);
+                    return series == null ? List.of() : series.slice(start, end).toStockData();
+                }).run(units, checkpoint, results);
+            } else {
+                new SweepRunner(threads).run(units, checkpoint, results);
+            }
+
+            List<Map.Entry<WorkUnit, BacktestResult>> top = results.getTop();
+            LOG.info("\n================== Top {} of {} Results ==================", top.size(), results.size());
+            for (Map.Entry<WorkUnit, BacktestResult> entry : top) {
+                LOG.info("{}: {}", entry.getKey(), entry.getValue());
+            }
+            if (options.containsKey("ranking")) {
+                writeRanking(results, Path.of(options.get("ranking")));
+            }
+            if (options.containsKey("export-results")) {
+                try (ResultFileWriter writer = new ResultFileWriter(Path.of(options.get("export-results")))) {
+                    results.forEachRanked(writer);
+                    LOG.info("{} results exported to {}", writer.getRowsWritten(), options.get("export-results"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all results ordered by net profit as CSV
+     */
+    private static void writeRanking(OffHeapResultStore results, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            results.forEachRanked((unit, result) -> writeCsvRow(writer, unit, result));
+        }
+        LOG.info("Full ranking written to {}", file);
+    }
+
+    static void writeCsvRow(BufferedWriter writer, WorkUnit unit, BacktestResult result) {
+        try {
+            writer.write(String.format("%s,%s,\"%s\",%s,%s,%.3f,%.3f,%d", unit.getSymbol(), unit.getStrategyName(),
+                    unit.getParameters(), unit.getStartDate(), unit.getEndDate(),
+                    result.getNetProfit(), result.getNetProfitPercentage(), result.getTradeCount()));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse arguments of the form --name=value
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Invalid argument '" + arg + "', expected --name=value");
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
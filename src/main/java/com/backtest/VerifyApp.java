@@ -0,0 +1,110 @@
+package com.backtest;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.PriceSeries;
+import com.backtest.db.StockData;
+import com.backtest.engine.sweep.SweepGrid;
+import com.backtest.engine.sweep.SweepRunner;
+import com.backtest.engine.sweep.WorkUnit;
+import com.backtest.engine.verify.ContentionStress;
+import com.backtest.engine.verify.ReproducibilityCheck;
+import com.backtest.engine.verify.VerificationReport;
+import com.backtest.engine.verify.Workload;
+import com.backtest.io.PriceFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Verifies that backtests are deterministic under parallelism, on the same work units as a sweep, e.g.
+ * <pre>
+ *   --symbols=AAPL,MSFT --strategies=SMA,EMA,SMA_RSI --grid=5 --threads=8 --rounds=3 --duration-ms=5000
+ * </pre>
+ * --mode=reproduce compares serial and parallel runs, --mode=stress runs the contention stress, both by default.
+ * The price data comes from the database, from a columnar file with --data=prices.bcol, or is generated with
+ * --synthetic=N for N random symbols. --seed fixes the shuffles and random choices so a failure can be replayed.
+ * Exits with status 1 if any check fails.
+ */
+public class VerifyApp {
+    private static final Logger LOG = LoggerFactory.getLogger(VerifyApp.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SweepApp.parseOptions(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        LocalDate from = LocalDate.parse(options.getOrDefault("from", "2024-01-02"));
+        LocalDate to = LocalDate.parse(options.getOrDefault("to", "2024-11-20"));
+        List<String> symbols;
+        SweepRunner.SeriesLoader loader;
+        if (options.containsKey("synthetic")) {
+            symbols = new ArrayList<>();
+            for (int i = 0; i < Integer.parseInt(options.get("synthetic")); i++) {
+                symbols.add("SYN" + i);
+            }
+            loader = (symbol, start, end) -> randomWalk(symbol, start, end, seed);
+        } else if (options.containsKey("data")) {
+            Map<String, PriceSeries> data = PriceFileReader.readAll(Path.of(options.get("data")));
+            symbols = options.containsKey("symbols") ? List.of(options.get("symbols").toUpperCase().split(",")) : List.copyOf(data.keySet());
+            loader = (symbol, start, end) -> {
+                PriceSeries series = data.get(symbol);
+                return series == null ? List.of() : series.slice(start, end).toStockData();
+            };
+        } else {
+            symbols = List.of(options.getOrDefault("symbols", "AAPL").toUpperCase().split(","));
+            loader = (symbol, start, end) -> DataRepository.retrievePriceData(symbol, Date.valueOf(start), Date.valueOf(end));
+        }
+
+        List<WorkUnit> units = SweepGrid.build(symbols,
+                List.of(options.getOrDefault("strategies", "SMA,EMA,SMA_RSI").split(",")), from, to,
+                Double.parseDouble(options.getOrDefault("cash", "10000")),
+                Integer.parseInt(options.getOrDefault("grid", "3")));
+        Workload workload = Workload.load(units, loader);
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String mode = options.getOrDefault("mode", "all");
+
+        List<VerificationReport> reports = new ArrayList<>();
+        if (!"stress".equals(mode)) {
+            reports.add(new ReproducibilityCheck(threads, Integer.parseInt(options.getOrDefault("rounds", "3")), seed).run(workload));
+        }
+        if (!"reproduce".equals(mode)) {
+            reports.add(new ContentionStress(threads, Long.parseLong(options.getOrDefault("duration-ms", "5000")), seed).run(workload));
+        }
+
+        boolean passed = true;
+        for (VerificationReport report : reports) {
+            LOG.info("{}", report);
+            report.getMismatches().forEach(mismatch -> LOG.error("  {}", mismatch));
+            passed &= report.isPassed();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Weekday bars of a geometric random walk, the same for the same symbol and seed
+     */
+    private static List<StockData> randomWalk(String symbol, LocalDate start, LocalDate end, long seed) {
+        Random random = new Random(seed * 31 + symbol.hashCode());
+        List<StockData> bars = new ArrayList<>();
+        double close = 50 + random.nextDouble() * 100;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            double open = close;
+            close = open * Math.exp(random.nextGaussian() * 0.02);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+            bars.add(StockData.ofEpochDay(symbol, (int) date.toEpochDay(), open, high, low, close, 1000 + random.nextInt(100_000)));
+        }
+        return bars;
+    }
+}
@@ -1,6 +1,8 @@
 package com.backtest.api.service;
 
 public class PriceDataRetrievalException extends Exception {
+  private static final long serialVersionUID = 1L;
+
   public PriceDataRetrievalException(String message) {
     super(message);
   }
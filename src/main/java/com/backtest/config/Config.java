@@ -9,10 +9,10 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import java.io.File;
 
 public class Config {
-    private static final Configuration CONFIG;
 
-    static {
-        CONFIG = loadConfiguration();
+    // Loaded on first use, so runs that never read a setting don't pay for commons-configuration
+    private static final class Holder {
+        private static final Configuration CONFIG = loadConfiguration();
     }
 
     private static Configuration loadConfiguration() {
@@ -30,10 +30,10 @@ public class Config {
     }
 
     public static String getApiKey() {
-        return CONFIG.getString("polygon_api_key");
+        return Holder.CONFIG.getString("polygon_api_key");
     }
 
     public static String getDatabasePassword() {
-        return CONFIG.getString("database_password");
+        return Holder.CONFIG.getString("database_password");
     }
 }
\ No newline at end of file
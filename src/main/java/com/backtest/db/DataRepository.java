@@ -7,34 +7,96 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DataRepository {
     private static final Logger LOG = LoggerFactory.getLogger(DataRepository.class);
     // SQL insert query for historical data
     private static final String INSERT_SQL = "INSERT INTO historical_price_data (symbol, trade_date, open, high, low, close, volume) " +
                                                 "VALUES (?, ?, ?, ?, ?, ?, ?);";
+    // SQL query for a symbol's bars in a date range, in date order (served by the (symbol, trade_date) index)
+    private static final String SELECT_RANGE_SQL = "SELECT symbol, trade_date, open, high, low, close, volume FROM historical_price_data " +
+                                                "WHERE symbol = ? AND trade_date BETWEEN ? AND ? ORDER BY trade_date";
+    private static final String DELETE_SYMBOL_SQL = "DELETE FROM historical_price_data WHERE symbol = ?";
+    // Fingerprint of all stored rows of a symbol, see SeriesFingerprint
+    private static final String SELECT_FINGERPRINT_SQL = "SELECT row_count, checksum FROM price_series_fingerprint WHERE symbol = ?";
+    private static final String MERGE_FINGERPRINT_SQL = "MERGE INTO price_series_fingerprint (symbol, row_count, checksum) KEY (symbol) VALUES (?, ?, ?)";
+    // Creates the empty fingerprint of a symbol without one, so there is a row to lock
+    private static final String INSERT_EMPTY_FINGERPRINT_SQL = "INSERT INTO price_series_fingerprint (symbol, row_count, checksum) " +
+                                                "SELECT ?, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM price_series_fingerprint WHERE symbol = ?)";
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    private static final String DELETE_FINGERPRINT_SQL = "DELETE FROM price_series_fingerprint WHERE symbol = ?";
+    // Cached backtest results computed on a previous version of the symbol's data
+    private static final String DELETE_STALE_RESULTS_SQL = "DELETE FROM backtest_result_cache WHERE symbol = ? " +
+                                                "AND (series_rows <> ? OR series_checksum <> ?)";
+    // Rows fetched per round trip when streaming
+    private static final int FETCH_SIZE = 1000;
 
     private DataRepository() {
     }
 
     /**
-     * Build the database connection and insert the data into table following the schema
+     * Build the database connection and insert the data into table following the schema. The symbol's
+     * fingerprint is updated in the same transaction and cached results on older data are dropped.
      * @param symbol
      * @param historicalPriceData
      */
     public static void insertHistoricalPriceData(String symbol, List<StockData> historicalPriceData) {
         // Try-with-resources to establish connection and close resources automatically
-        try (Connection conn = DatabaseConnector.connect();
-             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
-
+        try (Connection conn = DatabaseConnector.connect()) {
             conn.setAutoCommit(false); // Enable transaction management
+            insertRows(conn, symbol, historicalPriceData);
+            conn.commit();
+
+            LOG.info("Data successfully inserted into 'historical_price_data' table for {}.", symbol);
+        } catch (SQLException e) {
+            LOG.error("Failed to insert historical data.", e);
+        }
+    }
 
+    /**
+     * Replace all stored rows of a symbol in one transaction, e.g. with a fresh download of its full history.
+     * Replacing rows with identical data keeps the symbol's fingerprint, so its cached results stay valid.
+     * @param symbol
+     * @param historicalPriceData
+     */
+    public static void replaceHistoricalPriceData(String symbol, List<StockData> historicalPriceData) {
+        try (Connection conn = DatabaseConnector.connect()) {
+            conn.setAutoCommit(false);
+            deleteRows(conn, symbol);
+            insertRows(conn, symbol, historicalPriceData);
+            conn.commit();
+
+            LOG.info("Stored data of {} replaced with {} rows.", symbol, historicalPriceData.size());
+        } catch (SQLException e) {
+            LOG.error("Failed to replace historical data.", e);
+        }
+    }
+
+    /**
+     * Insert rows of a symbol on the caller's connection and update its fingerprint, without committing,
+     * so bulk loaders can put several batches into one transaction
+     * @param conn a connection with auto-commit off
+     * @param symbol
+     * @param rows
+     * @throws SQLException
+     */
+    public static void insertRows(Connection conn, String symbol, List<StockData> rows) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL);
+             PreparedStatement fingerprintStmt = conn.prepareStatement(MERGE_FINGERPRINT_SQL);
+             PreparedStatement invalidateStmt = conn.prepareStatement(DELETE_STALE_RESULTS_SQL)) {
             pstmt.setString(1, symbol);
             // For each retrieved StockData object, bind it to the insert query parameters.
-            for (StockData data: historicalPriceData) {
+            for (StockData data: rows) {
                 pstmt.setDate(2, java.sql.Date.valueOf(data.getTradeDate()));
                 pstmt.setDouble(3, data.getOpen());
                 pstmt.setDouble(4, data.getHigh());
@@ -45,23 +107,102 @@ public class DataRepository {
                 pstmt.addBatch(); // Batch multiple inserts to improve performance
             }
             pstmt.executeBatch(); // Insert all records in a batch
-            conn.commit();
 
-            LOG.info("Data successfully inserted into 'historical_price_data' table for {}.", symbol);
+            SeriesFingerprint fingerprint = readFingerprint(conn, symbol, true).plus(rows);
+            fingerprintStmt.setString(1, symbol);
+            fingerprintStmt.setLong(2, fingerprint.getRowCount());
+            fingerprintStmt.setLong(3, fingerprint.getChecksum());
+            fingerprintStmt.executeUpdate();
+            invalidateStmt.setString(1, symbol);
+            invalidateStmt.setLong(2, fingerprint.getRowCount());
+            invalidateStmt.setLong(3, fingerprint.getChecksum());
+            invalidateStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Delete all stored rows and blocks of a symbol and its fingerprint on the caller's connection, without committing
+     * @param conn
+     * @param symbol
+     * @throws SQLException
+     */
+    public static void deleteRows(Connection conn, String symbol) throws SQLException {
+        PriceBlockStore.deleteBlocks(conn, symbol);
+        try (PreparedStatement pstmt = conn.prepareStatement(DELETE_SYMBOL_SQL);
+             PreparedStatement fingerprintStmt = conn.prepareStatement(DELETE_FINGERPRINT_SQL)) {
+            pstmt.setString(1, symbol);
+            pstmt.executeUpdate();
+            fingerprintStmt.setString(1, symbol);
+            fingerprintStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @param symbol
+     * @return the fingerprint of all stored rows of the symbol, {@link SeriesFingerprint#EMPTY} if there are none
+     * @throws SQLException
+     */
+    public static SeriesFingerprint getSeriesFingerprint(String symbol) throws SQLException {
+        try (Connection conn = DatabaseConnector.connect()) {
+            return readFingerprint(conn, symbol, false);
+        }
+    }
+
+    /**
+     * @param forUpdate lock the fingerprint until the caller's transaction ends, creating an empty one if the
+     *                  symbol has none, so concurrent first inserts of a symbol queue up as well
+     */
+    static SeriesFingerprint readFingerprint(Connection conn, String symbol, boolean forUpdate) throws SQLException {
+        if (forUpdate) {
+            try (PreparedStatement insert = conn.prepareStatement(INSERT_EMPTY_FINGERPRINT_SQL)) {
+                insert.setString(1, symbol);
+                insert.setString(2, symbol);
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                if (!DUPLICATE_KEY_STATE.equals(e.getSQLState())) {
+                    throw e;
+                }
+                // A concurrent transaction created it first, the lock below waits for that one
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(forUpdate ? SELECT_FINGERPRINT_SQL + " FOR UPDATE" : SELECT_FINGERPRINT_SQL)) {
+            pstmt.setString(1, symbol);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new SeriesFingerprint(rs.getLong(1), rs.getLong(2)) : SeriesFingerprint.EMPTY;
+            }
+        }
+    }
+
+    /**
+     * @return the symbols with stored rows or blocks, in alphabetical order
+     */
+    public static List<String> getSymbols() {
+        List<String> symbols = new ArrayList<>();
+        try (Connection conn = DatabaseConnector.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT symbol FROM historical_price_data " +
+                     "UNION SELECT symbol FROM price_history_blocks ORDER BY symbol")) {
+            while (rs.next()) {
+                symbols.add(rs.getString(1));
+            }
         } catch (SQLException e) {
-            LOG.error("Failed to insert historical data.", e);
+            LOG.error("Failed to fetch the stored symbols.", e);
         }
+        return symbols;
     }
 
     // Fetch available date range for a given symbol
     public static Date[] getAvailableDateRange(String symbol) {
         Date[] dateRange = new Date[2];
-        String query = "SELECT MIN(trade_date) AS min_date, MAX(trade_date) AS max_date FROM historical_price_data WHERE symbol = ?";
+        String query = "SELECT MIN(first_date) AS min_date, MAX(last_date) AS max_date FROM (" +
+                "SELECT trade_date AS first_date, trade_date AS last_date FROM historical_price_data WHERE symbol = ? " +
+                "UNION ALL SELECT first_date, last_date FROM price_history_blocks WHERE symbol = ?)";
 
         try (Connection conn = DatabaseConnector.connect();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setString(1, symbol);
+            pstmt.setString(2, symbol);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 dateRange[0] = rs.getDate("min_date");
@@ -76,10 +217,8 @@ public class DataRepository {
     // Query some data from database to test if it's working
     public static List<StockData> retrieveHistoricalPriceData(String symbol, Date startDate, Date endDate) {
         List<StockData> historicalData = new ArrayList<>();
-        String query = "SELECT symbol, trade_date, open, high, low, close, volume FROM historical_price_data WHERE symbol = ? AND trade_date BETWEEN ? AND ?";
-
         try (Connection conn = DatabaseConnector.connect();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_RANGE_SQL)) {
 
             pstmt.setString(1, symbol);
             pstmt.setDate(2, startDate);
@@ -87,14 +226,10 @@ public class DataRepository {
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                // Retrieve trade_date as java.sql.Date
-                Date tradeDate = rs.getDate("trade_date");
-                // Convert java.sql.Date to long (milliseconds since epoch)
-                long tradeTimestamp = tradeDate.getTime();
-
-                StockData data = new StockData(
+                // Read trade_date as a calendar date, a java.sql.Date would be shifted by the host time zone
+                StockData data = StockData.ofEpochDay(
                         rs.getString("symbol"),
-                        tradeTimestamp,
+                        (int) rs.getObject("trade_date", LocalDate.class).toEpochDay(),
                         rs.getDouble("open"),
                         rs.getDouble("high"),
                         rs.getDouble("low"),
@@ -108,4 +243,129 @@ public class DataRepository {
         }
         return historicalData;
     }
+
+    /**
+     * Load the bars of a symbol in a date range, merging its compressed blocks (see {@link PriceBlockStore}) with
+     * the rows stored since it was last compacted. Both are read from one snapshot, so a concurrent compaction
+     * can't make bars show up twice or not at all.
+     * @param symbol
+     * @param startDate
+     * @param endDate
+     * @return the bars in date order, empty if they can't be read
+     */
+    public static List<StockData> retrievePriceData(String symbol, Date startDate, Date endDate) {
+        try (Connection conn = DatabaseConnector.connect()) {
+            beginSnapshot(conn);
+            List<StockData> blocks = PriceBlockStore.load(conn, symbol, startDate, endDate);
+            List<StockData> rows = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(SELECT_RANGE_SQL)) {
+                pstmt.setString(1, symbol);
+                pstmt.setDate(2, startDate);
+                pstmt.setDate(3, endDate);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int symbolId = SymbolTable.intern(symbol);
+                    while (rs.next()) {
+                        rows.add(readBar(symbolId, rs));
+                    }
+                }
+            }
+            conn.commit();
+            return PriceBlockStore.merge(blocks, rows);
+        } catch (SQLException e) {
+            LOG.error("Failed to retrieve price data.", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Stream the historical data of a symbol in date order without materializing the rows. Rows are read lazily
+     * from the cursor in batches of {@value #FETCH_SIZE}, so a backtest can start on the first bars while the rest
+     * are still being read, and merged with the symbol's compacted bars in the range, which are decoded up front.
+     * Like {@link #retrievePriceData}, both come from one snapshot. The stream holds a connection and must be
+     * closed, e.g. with try-with-resources.
+     * @param symbol
+     * @param startDate
+     * @param endDate
+     * @return the bars in date order
+     * @throws IllegalStateException if the query fails, also when reading further rows
+     */
+    public static Stream<StockData> streamHistoricalPriceData(String symbol, Date startDate, Date endDate) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = DatabaseConnector.connect();
+            beginSnapshot(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET LAZY_QUERY_EXECUTION TRUE"); // H2 would otherwise buffer the whole result first
+            }
+            List<StockData> blocks = PriceBlockStore.load(conn, symbol, startDate, endDate);
+            pstmt = conn.prepareStatement(SELECT_RANGE_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(FETCH_SIZE);
+            pstmt.setString(1, symbol);
+            pstmt.setDate(2, startDate);
+            pstmt.setDate(3, endDate);
+            ResultSet rs = pstmt.executeQuery();
+            int symbolId = SymbolTable.intern(symbol);
+
+            Connection connection = conn;
+            PreparedStatement statement = pstmt;
+            Spliterator<StockData> cursor = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+                private int block;
+                private StockData row;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super StockData> action) {
+                    try {
+                        if (row == null && rs.next()) {
+                            row = readBar(symbolId, rs);
+                        }
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Failed to read historical data for " + symbol, e);
+                    }
+                    // Compacted bars first on the same day, as in PriceBlockStore.merge
+                    if (block < blocks.size() && (row == null || blocks.get(block).getEpochDay() <= row.getEpochDay())) {
+                        action.accept(blocks.get(block++));
+                    } else if (row != null) {
+                        action.accept(row);
+                        row = null;
+                    } else {
+                        return false;
+                    }
+                    return true;
+                }
+            };
+            return StreamSupport.stream(cursor, false).onClose(() -> close(rs, statement, connection));
+        } catch (SQLException e) {
+            close(null, pstmt, conn);
+            throw new IllegalStateException("Failed to query historical data for " + symbol, e);
+        }
+    }
+
+    /**
+     * Read the following statements on the connection from one snapshot, until the transaction ends
+     */
+    private static void beginSnapshot(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        // H2 takes the snapshot of all tables at the transaction's first read only at this level
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+
+    // Columns by index, in the order of SELECT_RANGE_SQL
+    private static StockData readBar(int symbolId, ResultSet rs) throws SQLException {
+        return StockData.ofEpochDay(symbolId, (int) rs.getObject(2, LocalDate.class).toEpochDay(),
+                rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getLong(7));
+    }
+
+    private static void close(ResultSet rs, PreparedStatement pstmt, Connection conn) {
+        // Each in turn, so a failure to close one doesn't leak the others
+        for (AutoCloseable resource : new AutoCloseable[] {rs, pstmt, conn}) {
+            if (resource == null) continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                LOG.error("Failed to close the historical data cursor.", e);
+            }
+        }
+    }
 }
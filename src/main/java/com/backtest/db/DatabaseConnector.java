@@ -10,15 +10,24 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DatabaseConnector {
     private static final Logger LOG = LoggerFactory.getLogger(DatabaseConnector.class);
     //JDBC connection string to H2. Choose in-memory or disk-based storage for practice purpose.
-    private static final String JDBC_URL = "jdbc:h2:~/backtestdb";
+    //AUTO_SERVER lets several JVMs (e.g. sweep workers) open the same database file.
+    private static final String JDBC_URL = "jdbc:h2:~/backtestdb;AUTO_SERVER=TRUE";
     private static final String USER = "sa";
-    private static final String PASSWORD = Config.getDatabasePassword();
+    // Tables and indexes created by db_init.sql, all of them exist once the script has run
+    private static final Pattern CREATE_OBJECT = Pattern.compile("CREATE (?:UNIQUE )?(TABLE|INDEX) IF NOT EXISTS (\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final String SELECT_INDEXES_SQL = "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA = 'PUBLIC'";
 
     private DatabaseConnector() {
     }
@@ -29,7 +38,7 @@ public class DatabaseConnector {
      * @throws SQLException
      */
     public static Connection connect() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+        return DriverManager.getConnection(JDBC_URL, USER, Config.getDatabasePassword());
     }
 
     public static void createHistoricalDataTable() throws SQLException {
@@ -38,12 +47,59 @@ public class DatabaseConnector {
              Statement stmt = conn.createStatement()) {
             stmt.execute("DROP TABLE IF EXISTS historical_price_data");
             stmt.execute(createTableSQL);
+            // The price rows are gone, so drop the blocks and fingerprints of that history too
+            stmt.execute("DELETE FROM price_series_fingerprint");
+            stmt.execute("DELETE FROM price_history_blocks");
             LOG.info("Table 'historical_price_data' created or already exists");
         } catch (Exception e){
             LOG.error("Cannot create the table", e);
         }
     }
 
+    /**
+     * Create the tables and indexes that do not exist yet, keeping all stored data. If every table and index of the
+     * script exists already, the script is not run at all. Other statements, e.g. ALTER TABLE, are not checked:
+     * add them together with a new table or index, or they only reach new databases.
+     * @throws SQLException
+     */
+    public static void createSchemaIfMissing() throws SQLException {
+        String createTableSQL = loadSqlFromFile("db_init.sql");
+        try (Connection conn = connect()) {
+            if (schemaExists(conn, createTableSQL)) {
+                return;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(createTableSQL);
+            }
+        }
+    }
+
+    private static boolean schemaExists(Connection conn, String script) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        Set<String> indexes = new HashSet<>();
+        Matcher matcher = CREATE_OBJECT.matcher(script);
+        while (matcher.find()) {
+            String name = matcher.group(2).toUpperCase(Locale.ROOT);
+            if ("TABLE".equalsIgnoreCase(matcher.group(1))) {
+                tables.add(name);
+            } else {
+                indexes.add(name);
+            }
+        }
+        try (ResultSet rs = conn.getMetaData().getTables(null, "PUBLIC", null, new String[] {"TABLE"})) {
+            while (rs.next()) {
+                tables.remove(rs.getString("TABLE_NAME"));
+            }
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_INDEXES_SQL)) {
+            while (rs.next()) {
+                indexes.remove(rs.getString(1));
+            }
+        }
+        return tables.isEmpty() && indexes.isEmpty();
+    }
+
     /**
      * Load the SQL from a SQL file
      * @param fileName
@@ -51,12 +107,12 @@ public class DatabaseConnector {
      */
     private static String loadSqlFromFile(String fileName) {
         StringBuilder sql = new StringBuilder();
-        try (InputStream inputStream = DatabaseConnector.class.getClassLoader().getResourceAsStream(fileName);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            if (inputStream == null) {
-                LOG.error("SQL file not found");
-                return "";
-            }
+        InputStream inputStream = DatabaseConnector.class.getClassLoader().getResourceAsStream(fileName);
+        if (inputStream == null) {
+            LOG.error("SQL file not found");
+            return "";
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 sql.append(line).append("\n");
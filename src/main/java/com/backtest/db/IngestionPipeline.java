@@ -0,0 +1,291 @@
+package com.backtest.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk loader for many symbols. Fetcher threads load the bars of one symbol at a time and cut them into chunks
+ * that go through bounded queues to N writer threads. Symbols are partitioned over the writers, so the rows and
+ * fingerprint of a symbol are only ever written by one of them. Each writer owns a connection and commits once
+ * a batch of rows has accumulated or its queue runs dry. A full queue blocks the fetchers, so memory stays
+ * bounded by the queue capacity however many symbols are loaded.
+ * <p>
+ * Existing rows of a symbol are deleted and all its chunks inserted in one transaction. A fetcher queues the chunks
+ * of a symbol back to back, while other fetchers wait for that writer, so a writer has at most one symbol partly
+ * written and commits at the next symbol boundary once the batch is full. Only a single symbol with more than a
+ * batch of rows makes a transaction larger. If anything in a transaction fails, all its symbols are rolled back
+ * and keep the rows stored before.
+ */
+public class IngestionPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionPipeline.class);
+    private static final Chunk END = new Chunk(null, List.of(), false, false);
+
+    /**
+     * Loads all bars of one symbol, e.g. from the market data API
+     */
+    public interface PriceSource {
+        List<StockData> load(String symbol) throws Exception;
+    }
+
+    private final int writerCount;
+    private final int batchRows;
+    private final List<BlockingQueue<Chunk>> queues = new ArrayList<>();
+    // Held by the fetcher queuing the chunks of a symbol, one per writer queue
+    private final List<Object> queueOwners = new ArrayList<>();
+    private final AtomicLong committedRows = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final Map<String, String> failedSymbols = new ConcurrentHashMap<>();
+
+    /**
+     * @param writerCount the writer threads, each with its own connection
+     * @param batchRows the rows per chunk and the rows a writer commits at once at most
+     * @param queueChunks the chunks each writer queue holds before fetchers block
+     */
+    public IngestionPipeline(int writerCount, int batchRows, int queueChunks) {
+        this.writerCount = writerCount;
+        this.batchRows = batchRows;
+        for (int i = 0; i < writerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(queueChunks));
+            queueOwners.add(new Object());
+        }
+    }
+
+    /**
+     * Load and store all symbols
+     * @param symbols
+     * @param source
+     * @param fetcherCount the threads fetching and parsing in parallel
+     * @return the number of rows committed
+     * @throws InterruptedException
+     */
+    public long run(List<String> symbols, PriceSource source, int fetcherCount) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < writerCount; i++) {
+            BlockingQueue<Chunk> queue = queues.get(i);
+            Thread writer = new Thread(() -> write(queue), "ingest-writer-" + i);
+            writer.start();
+            writers.add(writer);
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] lastRows = {0};
+        reporter.scheduleAtFixedRate(() -> {
+            long rows = committedRows.get();
+            LOG.info("Ingested {} rows, {} rows/sec, queue depth {}", rows, rows - lastRows[0], getQueueDepth());
+            lastRows[0] = rows;
+        }, 1, 1, TimeUnit.SECONDS);
+
+        ExecutorService fetchers = Executors.newFixedThreadPool(fetcherCount);
+        try {
+            List<Future<?>> fetches = new ArrayList<>();
+            for (String symbol : symbols) {
+                fetches.add(fetchers.submit(() -> {
+                    fetch(symbol, source);
+                    return null;
+                }));
+            }
+            for (Future<?> fetch : fetches) {
+                try {
+                    fetch.get();
+                } catch (ExecutionException e) {
+                    LOG.error("Fetcher failed", e.getCause());
+                }
+            }
+        } finally {
+            fetchers.shutdownNow();
+            for (BlockingQueue<Chunk> queue : queues) {
+                queue.put(END);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            reporter.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long rows = committedRows.get();
+        LOG.info("Ingested {} rows of {} symbols in {} s ({} rows/sec, max queue depth {}), {} symbols failed",
+                rows, symbols.size(), String.format("%.2f", seconds), Math.round(rows / Math.max(seconds, 1e-9)),
+                maxQueueDepth.get(), failedSymbols.size());
+        return rows;
+    }
+
+    /**
+     * @return the symbols that could not be fetched or stored, with the reason
+     */
+    public Map<String, String> getFailedSymbols() {
+        return failedSymbols;
+    }
+
+    /**
+     * @return the chunks waiting in all writer queues
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<Chunk> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    private void fetch(String symbol, PriceSource source) throws InterruptedException {
+        List<StockData> rows;
+        try {
+            rows = source.load(symbol);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.error("Failed to fetch {}", symbol, e);
+            failedSymbols.put(symbol, String.valueOf(e.getMessage()));
+            return;
+        }
+        if (rows.isEmpty()) {
+            LOG.warn("No data for {}, keeping the stored rows", symbol);
+            return;
+        }
+        int writer = Math.floorMod(symbol.hashCode(), writerCount);
+        BlockingQueue<Chunk> queue = queues.get(writer);
+        synchronized (queueOwners.get(writer)) {
+            for (int from = 0; from < rows.size(); from += batchRows) {
+                // Blocks while the writer is behind
+                int to = Math.min(rows.size(), from + batchRows);
+                queue.put(new Chunk(symbol, rows.subList(from, to), from == 0, to == rows.size()));
+                maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            }
+        }
+    }
+
+    private void write(BlockingQueue<Chunk> queue) {
+        try (Connection conn = DatabaseConnector.connect()) {
+            conn.setAutoCommit(false);
+            Set<String> pendingSymbols = new HashSet<>();
+            // The symbol whose first chunk is written but not yet its last, the transaction can't commit before
+            String openSymbol = null;
+            int pendingRows = 0;
+            while (true) {
+                Chunk chunk = queue.poll();
+                if (chunk == null && openSymbol == null) {
+                    // Nothing waiting, commit what we have rather than hold it
+                    commit(conn, pendingSymbols, pendingRows);
+                    pendingRows = 0;
+                }
+                if (chunk == null) {
+                    chunk = queue.take();
+                }
+                if (chunk == END) {
+                    if (openSymbol == null) {
+                        commit(conn, pendingSymbols, pendingRows);
+                    } else {
+                        rollback(conn, pendingSymbols, new SQLException("Ingestion ended before the last chunk of " + openSymbol));
+                    }
+                    return;
+                }
+                if (failedSymbols.containsKey(chunk.symbol)) {
+                    continue;
+                }
+                if (chunk.first && pendingRows + chunk.rows.size() > batchRows) {
+                    commit(conn, pendingSymbols, pendingRows);
+                    pendingRows = 0;
+                }
+                try {
+                    if (chunk.first) {
+                        DataRepository.deleteRows(conn, chunk.symbol);
+                        openSymbol = chunk.symbol;
+                    }
+                    DataRepository.insertRows(conn, chunk.symbol, chunk.rows);
+                    pendingSymbols.add(chunk.symbol);
+                    pendingRows += chunk.rows.size();
+                    if (chunk.last) {
+                        openSymbol = null;
+                    }
+                } catch (SQLException e) {
+                    pendingSymbols.add(chunk.symbol);
+                    rollback(conn, pendingSymbols, e);
+                    openSymbol = null;
+                    pendingRows = 0;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOG.error("Ingestion writer {} failed", Thread.currentThread().getName(), e);
+            drainAfterFailure(queue, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commit(Connection conn, Set<String> pendingSymbols, int pendingRows) {
+        if (pendingRows == 0) {
+            return;
+        }
+        try {
+            conn.commit();
+            committedRows.addAndGet(pendingRows);
+            pendingSymbols.clear();
+        } catch (SQLException e) {
+            rollback(conn, pendingSymbols, e);
+        }
+    }
+
+    private void rollback(Connection conn, Set<String> pendingSymbols, SQLException cause) {
+        LOG.error("Failed to store {}", pendingSymbols, cause);
+        for (String symbol : pendingSymbols) {
+            failedSymbols.put(symbol, String.valueOf(cause.getMessage()));
+        }
+        pendingSymbols.clear();
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            LOG.error("Failed to roll back", e);
+        }
+    }
+
+    /**
+     * Keep taking chunks of a writer without a connection, so fetchers don't block forever
+     */
+    private void drainAfterFailure(BlockingQueue<Chunk> queue, Exception cause) {
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                failedSymbols.put(chunk.symbol, String.valueOf(cause.getMessage()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Chunk {
+        private final String symbol;
+        private final List<StockData> rows;
+        private final boolean first;
+        private final boolean last;
+
+        Chunk(String symbol, List<StockData> rows, boolean first, boolean last) {
+            this.symbol = symbol;
+            this.rows = rows;
+            this.first = first;
+            this.last = last;
+        }
+    }
+}
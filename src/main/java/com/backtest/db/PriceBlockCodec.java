@@ -0,0 +1,164 @@
+package com.backtest.db;
+
+import com.backtest.io.BitBuffer;
+import com.backtest.io.ColumnBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding of a block of consecutive bars of one symbol:
+ * <ul>
+ *   <li>dates: the first epoch day, then the day gaps bit-packed with the width of the largest gap</li>
+ *   <li>close: XOR encoded doubles (Gorilla), exact for any value</li>
+ *   <li>open, high, low: if every price of the block is a decimal with at most {@value #MAX_SCALE_DIGITS} digits,
+ *       scaled integers stored as their zigzag difference to the close of the same bar, bit-packed; otherwise XOR
+ *       encoded like the close</li>
+ *   <li>volume: differences to the previous bar as zigzag varints</li>
+ * </ul>
+ * Decoding restores the exact doubles that were encoded.
+ */
+public final class PriceBlockCodec {
+    static final int MAX_SCALE_DIGITS = 6;
+    private static final int NOT_SCALED = -1;
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private PriceBlockCodec() {
+    }
+
+    /**
+     * @param series
+     * @param from the first bar of the block
+     * @param to the bar after the block
+     * @return the encoded block
+     */
+    public static byte[] encode(PriceSeries series, int from, int to) {
+        int count = to - from;
+        int[] epochDays = series.getEpochDays();
+        int scale = scaleDigits(series, from, to);
+
+        BitBuffer bits = new BitBuffer(count * 48);
+        long[] scratch = new long[count];
+        for (int i = 1; i < count; i++) {
+            scratch[i] = epochDays[from + i] - epochDays[from + i - 1];
+        }
+        bits.putPacked(scratch, 1, count);
+        double[] close = series.getClose();
+        bits.putXorDoubles(close, from, to);
+        if (scale == NOT_SCALED) {
+            bits.putXorDoubles(series.getOpen(), from, to);
+            bits.putXorDoubles(series.getHigh(), from, to);
+            bits.putXorDoubles(series.getLow(), from, to);
+        } else {
+            double factor = POWERS_OF_TEN[scale];
+            for (double[] column : new double[][]{series.getOpen(), series.getHigh(), series.getLow()}) {
+                for (int i = 0; i < count; i++) {
+                    scratch[i] = zigzag(Math.round(column[from + i] * factor) - Math.round(close[from + i] * factor));
+                }
+                bits.putPacked(scratch, 0, count);
+            }
+        }
+
+        ColumnBuffer block = new ColumnBuffer(count * 8);
+        block.putVarLong(count);
+        block.putSignedVarLong(count == 0 ? 0 : epochDays[from]);
+        block.putByte(scale);
+        block.putBytes(bits.toByteArray());
+        long[] volume = series.getVolume();
+        long previous = 0;
+        for (int i = from; i < to; i++) {
+            block.putSignedVarLong(volume[i] - previous);
+            previous = volume[i];
+        }
+        return Arrays.copyOf(block.array(), block.length());
+    }
+
+    /**
+     * @return the number of bars in an encoded block
+     */
+    public static int count(byte[] block) {
+        return (int) ColumnBuffer.wrap(block, block.length).getVarLong();
+    }
+
+    /**
+     * Decode a block into the given arrays starting at offset
+     * @return the number of bars decoded
+     */
+    public static int decode(byte[] encoded, int[] epochDays, double[] open, double[] high, double[] low, double[] close,
+                             long[] volume, int offset) {
+        ColumnBuffer block = ColumnBuffer.wrap(encoded, encoded.length);
+        int count = (int) block.getVarLong();
+        long day = block.getSignedVarLong();
+        int scale = block.getByte();
+        byte[] packed = block.getBytes();
+        BitBuffer bits = BitBuffer.wrap(packed, 0, packed.length);
+        long[] scratch = new long[count];
+
+        bits.getPacked(scratch, 1, Math.max(0, count - 1));
+        if (count > 0) {
+            epochDays[offset] = (int) day;
+            for (int i = 1; i < count; i++) {
+                day += scratch[i];
+                epochDays[offset + i] = (int) day;
+            }
+        }
+        bits.getXorDoubles(close, offset, count);
+        if (scale == NOT_SCALED) {
+            bits.getXorDoubles(open, offset, count);
+            bits.getXorDoubles(high, offset, count);
+            bits.getXorDoubles(low, offset, count);
+        } else {
+            double factor = POWERS_OF_TEN[scale];
+            long[] scaledClose = new long[count];
+            for (int i = 0; i < count; i++) {
+                scaledClose[i] = Math.round(close[offset + i] * factor);
+            }
+            for (double[] column : new double[][]{open, high, low}) {
+                bits.getPacked(scratch, 0, count);
+                for (int i = 0; i < count; i++) {
+                    column[offset + i] = (scaledClose[i] + unzigzag(scratch[i])) / factor;
+                }
+            }
+        }
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += block.getSignedVarLong();
+            volume[offset + i] = previous;
+        }
+        return count;
+    }
+
+    /**
+     * @return the fewest decimal digits that represent every open, high, low and close of the block exactly,
+     * or NOT_SCALED if more than MAX_SCALE_DIGITS would be needed
+     */
+    private static int scaleDigits(PriceSeries series, int from, int to) {
+        double[][] columns = {series.getOpen(), series.getHigh(), series.getLow(), series.getClose()};
+        for (int digits = 0; digits <= MAX_SCALE_DIGITS; digits++) {
+            if (isExact(columns, from, to, POWERS_OF_TEN[digits])) {
+                return digits;
+            }
+        }
+        return NOT_SCALED;
+    }
+
+    private static boolean isExact(double[][] columns, int from, int to, double factor) {
+        for (double[] column : columns) {
+            for (int i = from; i < to; i++) {
+                double scaled = column[i] * factor;
+                // Beyond 2^52 neighbouring doubles are more than 1 apart and the difference could overflow
+                if (!(Math.abs(scaled) < 0x1p52) || Math.round(scaled) / factor != column[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
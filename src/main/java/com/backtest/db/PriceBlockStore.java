@@ -0,0 +1,178 @@
+package com.backtest.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compressed storage of compacted price history in the price_history_blocks table, {@value #BLOCK_ROWS} bars per
+ * row encoded with {@link PriceBlockCodec}. New bars are inserted as historical_price_data rows, which serve as the
+ * write buffer: compacting a symbol merges its rows into its blocks and deletes the rows in the same transaction,
+ * so every bar is stored once, either in a block or as a row. Readers in {@link DataRepository} merge both.
+ */
+public final class PriceBlockStore {
+    private static final Logger LOG = LoggerFactory.getLogger(PriceBlockStore.class);
+    static final int BLOCK_ROWS = 1024;
+    // Bounds of a whole history, epoch days of LocalDate.MIN and MAX don't fit in an int
+    private static final LocalDate FIRST_DAY = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    private static final String SELECT_ROWS_SQL = "SELECT trade_date, open, high, low, close, volume FROM historical_price_data " +
+                                                "WHERE symbol = ? ORDER BY trade_date";
+    private static final String DELETE_ROWS_SQL = "DELETE FROM historical_price_data WHERE symbol = ?";
+    private static final String DELETE_BLOCKS_SQL = "DELETE FROM price_history_blocks WHERE symbol = ?";
+    private static final String INSERT_BLOCK_SQL = "INSERT INTO price_history_blocks " +
+                                                "(symbol, block_no, first_date, last_date, row_count, data) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_BLOCKS_SQL = "SELECT row_count, data FROM price_history_blocks " +
+                                                "WHERE symbol = ? AND last_date >= ? AND first_date <= ? ORDER BY block_no";
+
+    private PriceBlockStore() {
+    }
+
+    /**
+     * Move the stored rows of a symbol into its blocks. The bars and the symbol's fingerprint stay the same.
+     * @param symbol
+     * @return the number of bars the symbol's blocks hold now
+     * @throws SQLException
+     */
+    public static int compact(String symbol) throws SQLException {
+        try (Connection conn = DatabaseConnector.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                // Locks the fingerprint, so no rows can be inserted until they are moved
+                DataRepository.readFingerprint(conn, symbol, true);
+                List<StockData> rows = readRows(conn, symbol);
+                if (rows.isEmpty()) {
+                    conn.rollback();
+                    return 0;
+                }
+                PriceSeries series = PriceSeries.of(symbol, merge(readBlocks(conn, symbol, FIRST_DAY, LAST_DAY), rows));
+
+                try (PreparedStatement deleteBlocks = conn.prepareStatement(DELETE_BLOCKS_SQL);
+                     PreparedStatement insert = conn.prepareStatement(INSERT_BLOCK_SQL);
+                     PreparedStatement deleteRows = conn.prepareStatement(DELETE_ROWS_SQL)) {
+                    deleteBlocks.setString(1, symbol);
+                    deleteBlocks.executeUpdate();
+                    int[] epochDays = series.getEpochDays();
+                    for (int from = 0, block = 0; from < series.size(); from += BLOCK_ROWS, block++) {
+                        int to = Math.min(series.size(), from + BLOCK_ROWS);
+                        insert.setString(1, symbol);
+                        insert.setInt(2, block);
+                        insert.setObject(3, LocalDate.ofEpochDay(epochDays[from]));
+                        insert.setObject(4, LocalDate.ofEpochDay(epochDays[to - 1]));
+                        insert.setInt(5, to - from);
+                        insert.setBytes(6, PriceBlockCodec.encode(series, from, to));
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    deleteRows.setString(1, symbol);
+                    deleteRows.executeUpdate();
+                }
+                conn.commit();
+                LOG.info("Compacted {} rows of {}, its blocks hold {} bars", rows.size(), symbol, series.size());
+                return series.size();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param conn
+     * @param symbol
+     * @param startDate
+     * @param endDate
+     * @return the compacted bars in the range, in date order
+     * @throws SQLException
+     */
+    static List<StockData> load(Connection conn, String symbol, Date startDate, Date endDate) throws SQLException {
+        return readBlocks(conn, symbol, startDate.toLocalDate(), endDate.toLocalDate());
+    }
+
+    /**
+     * Delete all blocks of a symbol on the caller's connection, without committing
+     * @param conn
+     * @param symbol
+     * @throws SQLException
+     */
+    static void deleteBlocks(Connection conn, String symbol) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(DELETE_BLOCKS_SQL)) {
+            pstmt.setString(1, symbol);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Merge two lists of bars in date order, bars of the first list come first on the same day
+     */
+    static List<StockData> merge(List<StockData> first, List<StockData> second) {
+        if (second.isEmpty()) return first;
+        if (first.isEmpty()) return second;
+        List<StockData> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            if (j == second.size() || (i < first.size() && first.get(i).getEpochDay() <= second.get(j).getEpochDay())) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private static List<StockData> readBlocks(Connection conn, String symbol, LocalDate startDate, LocalDate endDate) throws SQLException {
+        List<byte[]> blocks = new ArrayList<>();
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_BLOCKS_SQL)) {
+            pstmt.setString(1, symbol);
+            pstmt.setObject(2, startDate);
+            pstmt.setObject(3, endDate);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows += rs.getInt(1);
+                    blocks.add(rs.getBytes(2));
+                }
+            }
+        }
+        if (blocks.isEmpty()) {
+            return List.of();
+        }
+
+        int[] epochDays = new int[rows];
+        double[] open = new double[rows];
+        double[] high = new double[rows];
+        double[] low = new double[rows];
+        double[] close = new double[rows];
+        long[] volume = new long[rows];
+        int offset = 0;
+        for (byte[] block : blocks) {
+            offset += PriceBlockCodec.decode(block, epochDays, open, high, low, close, volume, offset);
+        }
+        return new PriceSeries(symbol, epochDays, open, high, low, close, volume).slice(startDate, endDate).toStockData();
+    }
+
+    private static List<StockData> readRows(Connection conn, String symbol) throws SQLException {
+        List<StockData> bars = new ArrayList<>();
+        int symbolId = SymbolTable.intern(symbol);
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_ROWS_SQL)) {
+            pstmt.setString(1, symbol);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bars.add(StockData.ofEpochDay(symbolId, (int) rs.getObject(1, LocalDate.class).toEpochDay(),
+                            rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getLong(6)));
+                }
+            }
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,115 @@
+package com.backtest.db;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Close prices of many symbols aligned on the union of their trading dates. Closes are stored row-major, one row
+ * of all symbols per date, so a cross-sectional strategy reads the universe on a date from one contiguous run.
+ * A symbol without a bar on a date has NaN there.
+ */
+public final class PriceMatrix {
+    private final String[] symbols;
+    private final int[] epochDays;
+    private final double[] close;
+
+    private PriceMatrix(String[] symbols, int[] epochDays, double[] close) {
+        this.symbols = symbols;
+        this.epochDays = epochDays;
+        this.close = close;
+    }
+
+    /**
+     * @param series one per symbol, each in date order
+     * @return the closes aligned on all dates any of the series has
+     */
+    public static PriceMatrix align(List<PriceSeries> series) {
+        int total = 0;
+        for (PriceSeries s : series) {
+            total += s.size();
+        }
+        int[] all = new int[total];
+        int offset = 0;
+        for (PriceSeries s : series) {
+            System.arraycopy(s.getEpochDays(), 0, all, offset, s.size());
+            offset += s.size();
+        }
+        Arrays.sort(all);
+        int length = 0;
+        for (int i = 0; i < total; i++) {
+            if (length == 0 || all[i] != all[length - 1]) {
+                all[length++] = all[i];
+            }
+        }
+        int[] epochDays = Arrays.copyOf(all, length);
+
+        int width = series.size();
+        String[] symbols = new String[width];
+        double[] close = new double[length * width];
+        Arrays.fill(close, Double.NaN);
+        for (int column = 0; column < width; column++) {
+            PriceSeries s = series.get(column);
+            symbols[column] = s.getSymbol();
+            int[] days = s.getEpochDays();
+            double[] closes = s.getClose();
+            int row = 0;
+            for (int i = 0; i < days.length; i++) {
+                // The dates are a superset of the series' dates, so this never runs past the end
+                while (epochDays[row] != days[i]) {
+                    row++;
+                }
+                close[row * width + column] = closes[i];
+            }
+        }
+        return new PriceMatrix(symbols, epochDays, close);
+    }
+
+    /**
+     * Load the bars of each symbol in a date range, see {@link DataRepository#retrievePriceData}
+     * @param symbols
+     * @param startDate
+     * @param endDate
+     * @return the aligned closes
+     */
+    public static PriceMatrix load(List<String> symbols, Date startDate, Date endDate) {
+        List<PriceSeries> series = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            series.add(PriceSeries.of(symbol, DataRepository.retrievePriceData(symbol, startDate, endDate)));
+        }
+        return align(series);
+    }
+
+    public int getWidth() {return symbols.length;}
+    public int getLength() {return epochDays.length;}
+    public String getSymbol(int column) {return symbols[column];}
+    public int getEpochDay(int row) {return epochDays[row];}
+
+    /**
+     * @return the close of a symbol on a date, NaN if it has no bar that day
+     */
+    public double getClose(int row, int column) {
+        return close[row * symbols.length + column];
+    }
+
+    /**
+     * @return all closes, row-major with {@link #getWidth()} symbols per row, not to be modified
+     */
+    public double[] getCloses() {
+        return close;
+    }
+
+    /**
+     * @param symbol
+     * @return the column of the symbol, -1 if it is not in the matrix
+     */
+    public int indexOf(String symbol) {
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i].equals(symbol)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,110 @@
+package com.backtest.db;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The bars of one symbol held column by column in primitive arrays, in date order. Bulk readers fill the arrays
+ * directly; {@link #toStockData()} turns them into bars for the strategies.
+ * The arrays are shared, not copied, and must not be modified.
+ */
+public final class PriceSeries {
+    private final String symbol;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    public PriceSeries(String symbol, int[] epochDays, double[] open, double[] high, double[] low, double[] close, long[] volume) {
+        int size = epochDays.length;
+        if (open.length != size || high.length != size || low.length != size || close.length != size || volume.length != size) {
+            throw new IllegalArgumentException("All columns of " + symbol + " must have " + size + " values");
+        }
+        this.symbol = symbol;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * @param symbol
+     * @param bars in date order
+     * @return the bars as columns
+     */
+    public static PriceSeries of(String symbol, List<StockData> bars) {
+        int size = bars.size();
+        int[] epochDays = new int[size];
+        double[] open = new double[size];
+        double[] high = new double[size];
+        double[] low = new double[size];
+        double[] close = new double[size];
+        long[] volume = new long[size];
+        for (int i = 0; i < size; i++) {
+            StockData bar = bars.get(i);
+            epochDays[i] = bar.getEpochDay();
+            open[i] = bar.getOpen();
+            high[i] = bar.getHigh();
+            low[i] = bar.getLow();
+            close[i] = bar.getClose();
+            volume[i] = bar.getVolume();
+        }
+        return new PriceSeries(symbol, epochDays, open, high, low, close, volume);
+    }
+
+    public String getSymbol() {return symbol;}
+    public int size() {return epochDays.length;}
+    public int[] getEpochDays() {return epochDays;}
+    public double[] getOpen() {return open;}
+    public double[] getHigh() {return high;}
+    public double[] getLow() {return low;}
+    public double[] getClose() {return close;}
+    public long[] getVolume() {return volume;}
+
+    /**
+     * @return the bars from start to end inclusive, found by binary search
+     */
+    public PriceSeries slice(LocalDate startDate, LocalDate endDate) {
+        int from = lowerBound((int) startDate.toEpochDay());
+        int to = lowerBound((int) endDate.toEpochDay() + 1);
+        if (from == 0 && to == size()) {
+            return this;
+        }
+        return new PriceSeries(symbol, Arrays.copyOfRange(epochDays, from, to),
+                Arrays.copyOfRange(open, from, to), Arrays.copyOfRange(high, from, to), Arrays.copyOfRange(low, from, to),
+                Arrays.copyOfRange(close, from, to), Arrays.copyOfRange(volume, from, to));
+    }
+
+    // Index of the first bar on or after the day
+    private int lowerBound(int epochDay) {
+        int first = 0;
+        int end = epochDays.length;
+        while (first < end) {
+            int mid = (first + end) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                first = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return the bars as StockData, in date order
+     */
+    public List<StockData> toStockData() {
+        int symbolId = SymbolTable.intern(symbol);
+        List<StockData> bars = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            bars.add(StockData.ofEpochDay(symbolId, epochDays[i], open[i], high[i], low[i], close[i], volume[i]));
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,69 @@
+package com.backtest.db;
+
+import java.util.List;
+
+/**
+ * Order-independent checksum of the stored bars of one symbol: the row count and the sum of a 64-bit hash of
+ * every row. Adding rows only adds their hashes, so {@link DataRepository} can keep it up to date on insert
+ * without reading the existing rows, and the same rows always give the same fingerprint.
+ */
+public final class SeriesFingerprint {
+    public static final SeriesFingerprint EMPTY = new SeriesFingerprint(0, 0);
+
+    private final long rowCount;
+    private final long checksum;
+
+    public SeriesFingerprint(long rowCount, long checksum) {
+        this.rowCount = rowCount;
+        this.checksum = checksum;
+    }
+
+    public long getRowCount() {return rowCount;}
+    public long getChecksum() {return checksum;}
+
+    /**
+     * @param bars
+     * @return this fingerprint with the given rows added
+     */
+    public SeriesFingerprint plus(List<StockData> bars) {
+        long sum = checksum;
+        for (StockData bar : bars) {
+            sum += hash(bar);
+        }
+        return new SeriesFingerprint(rowCount + bars.size(), sum);
+    }
+
+    static long hash(StockData bar) {
+        long h = mix(bar.getEpochDay());
+        h = mix(h ^ Double.doubleToLongBits(bar.getOpen()));
+        h = mix(h ^ Double.doubleToLongBits(bar.getHigh()));
+        h = mix(h ^ Double.doubleToLongBits(bar.getLow()));
+        h = mix(h ^ Double.doubleToLongBits(bar.getClose()));
+        return mix(h ^ bar.getVolume());
+    }
+
+    // The 64-bit finalizer of MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SeriesFingerprint && rowCount == ((SeriesFingerprint) o).rowCount
+                && checksum == ((SeriesFingerprint) o).checksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(rowCount * 31 + checksum);
+    }
+
+    @Override
+    public String toString() {
+        return rowCount + " rows, checksum " + Long.toHexString(checksum);
+    }
+}
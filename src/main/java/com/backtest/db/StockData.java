@@ -1,22 +1,30 @@
 package com.backtest.db;
 
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
 
+/**
+ * One daily price bar. The symbol is stored as an id in the {@link SymbolTable} and the date as days since
+ * 1970-01-01, so a bar holds only primitives; {@link #getSymbol()} and {@link #getTradeDate()} are views on them.
+ */
 public class StockData {
-    private String symbol;
-    private LocalDate tradeDate;
-    private double open;
-    private double high;
-    private double low;
-    private double close;
-    private long volume;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final int symbolId;
+    private final int epochDay;
+    private final double open;
+    private final double high;
+    private final double low;
+    private final double close;
+    private final long volume;
 
     // Constructor
     public StockData(String symbol, long tradeTimestamp, double open, double high, double low, double close, long volume) {
-        this.symbol = symbol;
-        this.tradeDate = convertTimestampToDate(tradeTimestamp);
+        this(SymbolTable.intern(symbol), convertTimestampToEpochDay(tradeTimestamp), open, high, low, close, volume);
+    }
+
+    private StockData(int symbolId, int epochDay, double open, double high, double low, double close, long volume) {
+        this.symbolId = symbolId;
+        this.epochDay = epochDay;
         this.open = open;
         this.high = high;
         this.low = low;
@@ -24,15 +32,30 @@ public class StockData {
         this.volume = volume;
     }
 
-    // Convert timestamp in milliseconds to LocalDate
-    private LocalDate convertTimestampToDate(long timestamp) {
-        Instant instant = Instant.ofEpochMilli(timestamp);
-        return instant.atZone(ZoneId.systemDefault()).toLocalDate();
+    /**
+     * Create a bar for a calendar date given as days since 1970-01-01
+     */
+    public static StockData ofEpochDay(String symbol, int epochDay, double open, double high, double low, double close, long volume) {
+        return new StockData(SymbolTable.intern(symbol), epochDay, open, high, low, close, volume);
+    }
+
+    /**
+     * Create a bar for an already interned symbol
+     */
+    public static StockData ofEpochDay(int symbolId, int epochDay, double open, double high, double low, double close, long volume) {
+        return new StockData(symbolId, epochDay, open, high, low, close, volume);
+    }
+
+    // Convert timestamp in milliseconds to the UTC calendar day, independent of the host time zone
+    private static int convertTimestampToEpochDay(long timestamp) {
+        return (int) Math.floorDiv(timestamp, MILLIS_PER_DAY);
     }
 
     // Getter methods
-    public String getSymbol() {return symbol;}
-    public LocalDate getTradeDate() {return tradeDate;}
+    public String getSymbol() {return SymbolTable.name(symbolId);}
+    public int getSymbolId() {return symbolId;}
+    public LocalDate getTradeDate() {return LocalDate.ofEpochDay(epochDay);}
+    public int getEpochDay() {return epochDay;}
     public double getOpen() {return open;}
     public double getHigh() {return high;}
     public double getLow() {return low;}
@@ -0,0 +1,50 @@
+package com.backtest.db;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of ticker symbols. Each distinct symbol is stored once and referred to by a small int id,
+ * so price bars don't carry their own String reference.
+ */
+public final class SymbolTable {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int count;
+
+    private SymbolTable() {
+    }
+
+    /**
+     * @param symbol
+     * @return the id of the symbol, assigning the next free id on first use
+     */
+    public static int intern(String symbol) {
+        Integer id = IDS.get(symbol);
+        return id != null ? id : register(symbol);
+    }
+
+    private static synchronized int register(String symbol) {
+        Integer id = IDS.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        String[] current = names;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+        }
+        current[count] = symbol;
+        names = current; // Publish the array before the id becomes visible
+        IDS.put(symbol, count);
+        return count++;
+    }
+
+    /**
+     * @param id an id returned by {@link #intern(String)}
+     * @return the symbol
+     */
+    public static String name(int id) {
+        return names[id];
+    }
+}
@@ -0,0 +1,70 @@
+package com.backtest.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Immutable outcome of one backtest run.
+ */
+public final class BacktestResult {
+    private final double initialCashBalance;
+    private final double finalCashBalance;
+    private final double sharesOwned;
+    private final double lastPrice;
+    private final int tradeCount;
+
+    public BacktestResult(double initialCashBalance, double finalCashBalance, double sharesOwned, double lastPrice, int tradeCount) {
+        this.initialCashBalance = initialCashBalance;
+        this.finalCashBalance = finalCashBalance;
+        this.sharesOwned = sharesOwned;
+        this.lastPrice = lastPrice;
+        this.tradeCount = tradeCount;
+    }
+
+    public double getInitialCashBalance() {return initialCashBalance;}
+    public double getFinalCashBalance() {return finalCashBalance;}
+    public double getSharesOwned() {return sharesOwned;}
+    public double getLastPrice() {return lastPrice;}
+    public int getTradeCount() {return tradeCount;}
+
+    /**
+     * @return final cash plus open position valued at the last execution price, minus the initial cash
+     */
+    public double getNetProfit() {
+        return finalCashBalance - initialCashBalance + lastPrice * sharesOwned;
+    }
+
+    public double getNetProfitPercentage() {
+        return (getNetProfit() / initialCashBalance) * 100;
+    }
+
+    /**
+     * Write the result in a fixed binary layout (4 doubles and an int)
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(initialCashBalance);
+        out.writeDouble(finalCashBalance);
+        out.writeDouble(sharesOwned);
+        out.writeDouble(lastPrice);
+        out.writeInt(tradeCount);
+    }
+
+    /**
+     * Read a result written by {@link #writeTo(DataOutput)}
+     * @param in
+     * @return the result
+     * @throws IOException
+     */
+    public static BacktestResult readFrom(DataInput in) throws IOException {
+        return new BacktestResult(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readInt());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("netProfit=%.3f (%.3f%%), trades=%d, cash=%.3f, shares=%.3f",
+                getNetProfit(), getNetProfitPercentage(), tradeCount, finalCashBalance, sharesOwned);
+    }
+}
@@ -1,42 +1,143 @@
 package com.backtest.engine;
 
 import com.backtest.db.StockData;
+import com.backtest.strategy.SignalGenerator;
 import com.backtest.strategy.Strategy;
 import com.backtest.strategy.TradeSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
 
 public class ExecutionEngine {
     private static final Logger LOG = LoggerFactory.getLogger(ExecutionEngine.class);
+    // Bars between checks for interruption, minus one
+    private static final int CANCEL_CHECK_BARS = 1023;
 
     private double cashBalance;
     private double sharesOwned;
+    private int tradeCount;
+    private double lastPrice;
     private final double initialCashBalance;
+    private final boolean verbose;
+    private final TradeJournal journal;
 
     /**
      * Constructor
      * @param initialCashBalance
      */
     public ExecutionEngine(double initialCashBalance) {
+        this(initialCashBalance, true);
+    }
+
+    /**
+     * Constructor
+     * @param initialCashBalance
+     * @param verbose whether to log every execution and the summary, batch runs turn this off
+     */
+    public ExecutionEngine(double initialCashBalance, boolean verbose) {
+        this(initialCashBalance, verbose, null);
+    }
+
+    /**
+     * Constructor
+     * @param initialCashBalance
+     * @param verbose whether to log every execution and the summary, batch runs turn this off
+     * @param journal receives every execution, may be null
+     */
+    public ExecutionEngine(double initialCashBalance, boolean verbose, TradeJournal journal) {
         this.initialCashBalance = initialCashBalance;
         this.cashBalance = initialCashBalance;
         this.sharesOwned = 0;
+        this.verbose = verbose;
+        this.journal = journal;
     }
 
-    public void runBackTest(Strategy strategy, List<StockData> marketData) {
+    /**
+     * Run the strategy over the market data and execute its signals
+     * @param strategy
+     * @param marketData
+     * @return the result of the run
+     */
+    public BacktestResult runBackTest(Strategy strategy, List<StockData> marketData) {
         List<TradeSignal> signals = strategy.simulateTrades(marketData);
-        double finalPrice = 0;
 
         for (TradeSignal signal : signals) {
-            if ("BUY".equals(signal.getType())) {
-               finalPrice = executeBuy(signal);
-            } else if ("SELL".equals(signal.getType())) {
-                finalPrice = executeSell(signal);
+            onSignal(signal);
+        }
+        return finish();
+    }
+
+    /**
+     * Run the strategy bar by bar as the market data arrives, e.g. from a database cursor,
+     * executing each signal as soon as it is generated
+     * @param strategy
+     * @param marketData bars in date order, consumed but not closed
+     * @return the result of the run
+     * @throws IllegalArgumentException if the stream has fewer bars than the strategy needs
+     * @throws CancellationException if the calling thread is interrupted during the run
+     */
+    public BacktestResult runBackTest(Strategy strategy, Stream<StockData> marketData) {
+        SignalGenerator generator = strategy.newSignalGenerator();
+        int minimumBars = strategy.getMinimumBars();
+        // Signals before the minimum is reached are held back, so a too short series rejects without trading
+        List<TradeSignal> heldBack = new ArrayList<>();
+        int bars = 0;
+
+        Iterator<StockData> iterator = marketData.iterator();
+        while (iterator.hasNext()) {
+            TradeSignal signal = generator.onBar(iterator.next());
+            bars++;
+            if ((bars & CANCEL_CHECK_BARS) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Backtest interrupted after " + bars + " bars");
+            }
+            if (bars == minimumBars) {
+                heldBack.forEach(this::onSignal);
+                heldBack.clear();
             }
+            if (signal != null) {
+                if (bars < minimumBars) {
+                    heldBack.add(signal);
+                } else {
+                    onSignal(signal);
+                }
+            }
+        }
+        if (bars < minimumBars) {
+            throw new IllegalArgumentException("Insufficient market data");
+        }
+        return finish();
+    }
+
+    /**
+     * Execute one signal as soon as it arrives, for callers that drive the strategy themselves, e.g. paper trading
+     * @param signal
+     */
+    public void onSignal(TradeSignal signal) {
+        if ("BUY".equals(signal.getType())) {
+            lastPrice = executeBuy(signal);
+        } else if ("SELL".equals(signal.getType())) {
+            lastPrice = executeSell(signal);
+        }
+    }
+
+    /**
+     * @return the portfolio as of the signals executed so far
+     */
+    public BacktestResult getResult() {
+        return new BacktestResult(initialCashBalance, cashBalance, sharesOwned, lastPrice, tradeCount);
+    }
+
+    private BacktestResult finish() {
+        BacktestResult result = getResult();
+        if (verbose) {
+            summarizeResults(result);
         }
-        summarizeResults(finalPrice);
+        return result;
     }
 
     /**
@@ -48,8 +149,14 @@ public class ExecutionEngine {
         if (sharesToBuy > 0) {
             cashBalance -= sharesToBuy * signal.getPrice();
             sharesOwned += sharesToBuy;
-            String msg = "Executed BUY: " + sharesToBuy + " shares at " + signal.getPrice() + " on " + signal.getDate() + ", cash balance is: " + cashBalance;
-            LOG.info(msg);
+            tradeCount++;
+            if (journal != null) {
+                journal.record(signal.getDate(), true, signal.getPrice(), sharesToBuy, cashBalance);
+            }
+            if (verbose) {
+                String msg = "Executed BUY: " + sharesToBuy + " shares at " + signal.getPrice() + " on " + signal.getDate() + ", cash balance is: " + cashBalance;
+                LOG.info(msg);
+            }
         }
         return signal.getPrice();
     }
@@ -61,24 +168,31 @@ public class ExecutionEngine {
     private double executeSell(TradeSignal signal) {
         if (sharesOwned > 0) {
             cashBalance += sharesOwned * signal.getPrice();
-            String msg = "Executed SELL: " + sharesOwned + " shares at " + signal.getPrice() + " on " + signal.getDate() + ", cash balance is: " + cashBalance;
-            LOG.info(msg);
+            tradeCount++;
+            if (journal != null) {
+                journal.record(signal.getDate(), false, signal.getPrice(), sharesOwned, cashBalance);
+            }
+            if (verbose) {
+                String msg = "Executed SELL: " + sharesOwned + " shares at " + signal.getPrice() + " on " + signal.getDate() + ", cash balance is: " + cashBalance;
+                LOG.info(msg);
+            }
             sharesOwned = 0;
         }
         return signal.getPrice();
     }
 
-    // Simple summary from trading results
-    private void summarizeResults(double finalPrice) {
+    /**
+     * Log a simple summary of a backtest result
+     * @param result
+     */
+    public static void summarizeResults(BacktestResult result) {
         LOG.info("\n================== Portfolio Summary ==================");
-        LOG.info("Final Cash Balance: {}", cashBalance);
-        String sharesOwnedMsg = String.format("%.3f", sharesOwned);
+        LOG.info("Final Cash Balance: {}", result.getFinalCashBalance());
+        String sharesOwnedMsg = String.format("%.3f", result.getSharesOwned());
         LOG.info("Shares Owned: {}", sharesOwnedMsg);
-        LOG.info("Last execution price: {}", finalPrice);
-        double netProfit = cashBalance - initialCashBalance + finalPrice * sharesOwned;
-        String netProfitMsg = String.format("%.3f", netProfit);
-        double netProfitPercentage = (netProfit / initialCashBalance) * 100;
-        String netProfitPercentageMsg = String.format("%.3f", netProfitPercentage);
+        LOG.info("Last execution price: {}", result.getLastPrice());
+        String netProfitMsg = String.format("%.3f", result.getNetProfit());
+        String netProfitPercentageMsg = String.format("%.3f", result.getNetProfitPercentage());
         LOG.info("Net Profit: {}, in percent {}%", netProfitMsg, netProfitPercentageMsg);
     }
 }
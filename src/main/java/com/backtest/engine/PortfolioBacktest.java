@@ -0,0 +1,140 @@
+package com.backtest.engine;
+
+import com.backtest.db.PriceMatrix;
+import com.backtest.strategy.cross.CrossSection;
+import com.backtest.strategy.cross.CrossSectionalStrategy;
+import com.backtest.strategy.cross.PortfolioGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs cross-sectional strategies over a price matrix. Several strategies can be evaluated in one pass over the
+ * dates, sharing the cross-section and its rolling statistics, each with its own portfolio.
+ * <p>
+ * Orders execute at the close of the date they are decided on. A symbol's position is resized to its target weight
+ * of current equity whenever the target changes; without a close that day the order waits for the next one.
+ * Each resize counts as one trade. Open positions are valued at their last close in the result.
+ */
+public class PortfolioBacktest {
+    private final double initialCashBalance;
+    private long elapsedNanos;
+    private int bars;
+
+    /**
+     * Constructor
+     * @param initialCashBalance of each strategy's portfolio
+     */
+    public PortfolioBacktest(double initialCashBalance) {
+        this.initialCashBalance = initialCashBalance;
+    }
+
+    /**
+     * @param matrix
+     * @param strategy
+     * @return the result of the run, with the final equity as cash and no open shares
+     * @throws IllegalArgumentException if the matrix has fewer dates than the strategy needs
+     */
+    public BacktestResult run(PriceMatrix matrix, CrossSectionalStrategy strategy) {
+        return run(matrix, List.of(strategy)).get(0);
+    }
+
+    /**
+     * @param matrix
+     * @param strategies evaluated in one pass
+     * @return the results in the order of the strategies
+     * @throws IllegalArgumentException if the matrix has fewer dates than a strategy needs
+     */
+    public List<BacktestResult> run(PriceMatrix matrix, List<CrossSectionalStrategy> strategies) {
+        for (CrossSectionalStrategy strategy : strategies) {
+            if (matrix.getLength() < strategy.getMinimumBars()) {
+                throw new IllegalArgumentException("Insufficient market data");
+            }
+        }
+        long start = System.nanoTime();
+        CrossSection section = new CrossSection(matrix);
+        int width = matrix.getWidth();
+        List<Portfolio> portfolios = new ArrayList<>(strategies.size());
+        for (CrossSectionalStrategy strategy : strategies) {
+            portfolios.add(new Portfolio(strategy.newGenerator(section), width));
+        }
+        double[] lastPrice = new double[width];
+
+        while (section.advance()) {
+            for (int i = 0; i < width; i++) {
+                double close = section.getClose(i);
+                if (!Double.isNaN(close)) {
+                    lastPrice[i] = close;
+                }
+            }
+            for (Portfolio portfolio : portfolios) {
+                portfolio.generator.onBar(section, portfolio.targets);
+                portfolio.rebalance(section, lastPrice);
+            }
+        }
+
+        bars = matrix.getLength();
+        elapsedNanos = System.nanoTime() - start;
+        List<BacktestResult> results = new ArrayList<>(portfolios.size());
+        for (Portfolio portfolio : portfolios) {
+            results.add(new BacktestResult(initialCashBalance, portfolio.equity(lastPrice), 0, 0, portfolio.tradeCount));
+        }
+        return results;
+    }
+
+    /**
+     * @return the wall time of the last run per date, in microseconds
+     */
+    public double getMicrosPerBar() {
+        return bars == 0 ? 0 : elapsedNanos / 1000.0 / bars;
+    }
+
+    private final class Portfolio {
+        private final PortfolioGenerator generator;
+        private final double[] targets;
+        private final double[] executed;
+        private final double[] shares;
+        private double cash = initialCashBalance;
+        private int tradeCount;
+
+        Portfolio(PortfolioGenerator generator, int width) {
+            this.generator = generator;
+            this.targets = new double[width];
+            this.executed = new double[width];
+            this.shares = new double[width];
+        }
+
+        void rebalance(CrossSection section, double[] lastPrice) {
+            double equity = Double.NaN;
+            for (int i = 0; i < targets.length; i++) {
+                double target = Double.isNaN(targets[i]) ? 0 : targets[i];
+                if (target == executed[i]) {
+                    continue;
+                }
+                double price = section.getClose(i);
+                if (Double.isNaN(price)) {
+                    continue;
+                }
+                if (Double.isNaN(equity)) {
+                    // Valued once before any order of the date, so the order of symbols doesn't matter
+                    equity = equity(lastPrice);
+                }
+                double wanted = target * equity / price;
+                cash -= (wanted - shares[i]) * price;
+                shares[i] = wanted;
+                executed[i] = target;
+                tradeCount++;
+            }
+        }
+
+        double equity(double[] lastPrice) {
+            double equity = cash;
+            for (int i = 0; i < shares.length; i++) {
+                if (shares[i] != 0) {
+                    equity += shares[i] * lastPrice[i];
+                }
+            }
+            return equity;
+        }
+    }
+}
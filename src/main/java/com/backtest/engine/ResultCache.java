@@ -0,0 +1,121 @@
+package com.backtest.engine;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.DatabaseConnector;
+import com.backtest.db.SeriesFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Persistent memo of backtest results in the backtest_result_cache table, keyed by symbol, date range, cash and
+ * strategy with its normalized parameters. Every entry records the {@link SeriesFingerprint} of the symbol's data
+ * it was computed on and only matches while the stored rows still have that fingerprint; entries on older data
+ * are deleted when new rows are inserted.
+ */
+public final class ResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+    private static final String SELECT_SQL = "SELECT result FROM backtest_result_cache " +
+                                                "WHERE cache_key = ? AND series_rows = ? AND series_checksum = ?";
+    private static final String MERGE_SQL = "MERGE INTO backtest_result_cache (cache_key, symbol, series_rows, series_checksum, result) " +
+                                                "KEY (cache_key) VALUES (?, ?, ?, ?, ?)";
+
+    private ResultCache() {
+    }
+
+    /**
+     * Return the stored result of this backtest, or run it and store the result
+     * @param symbol
+     * @param startDate
+     * @param endDate
+     * @param strategyKey see {@link com.backtest.strategy.StrategyFactory#getStrategyKey}
+     * @param initialCashBalance
+     * @param backtest runs the backtest, may return null if it failed
+     * @return the result, null if the backtest failed
+     */
+    public static BacktestResult computeIfAbsent(String symbol, Date startDate, Date endDate, String strategyKey,
+                                                 double initialCashBalance, Supplier<BacktestResult> backtest) {
+        String key = key(symbol, startDate, endDate, strategyKey, initialCashBalance);
+        SeriesFingerprint fingerprint;
+        try {
+            // Read before the data is loaded, a result computed on rows inserted meanwhile is stored as stale
+            fingerprint = DataRepository.getSeriesFingerprint(symbol);
+            BacktestResult cached = lookup(key, fingerprint);
+            if (cached != null) {
+                LOG.info("Using the cached result for {} from {} to {} ({})", symbol, startDate, endDate, fingerprint);
+                return cached;
+            }
+        } catch (SQLException e) {
+            LOG.error("Cannot read the result cache, running the backtest", e);
+            return backtest.get();
+        }
+
+        BacktestResult result = backtest.get();
+        if (result != null) {
+            store(key, symbol, fingerprint, result);
+        }
+        return result;
+    }
+
+    private static BacktestResult lookup(String key, SeriesFingerprint fingerprint) throws SQLException {
+        try (Connection conn = DatabaseConnector.connect();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_SQL)) {
+            pstmt.setString(1, key);
+            pstmt.setLong(2, fingerprint.getRowCount());
+            pstmt.setLong(3, fingerprint.getChecksum());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return BacktestResult.readFrom(new DataInputStream(new ByteArrayInputStream(rs.getBytes(1))));
+            }
+        } catch (IOException e) {
+            LOG.error("Ignoring a corrupt cached result", e);
+            return null;
+        }
+    }
+
+    private static void store(String key, String symbol, SeriesFingerprint fingerprint, BacktestResult result) {
+        try (Connection conn = DatabaseConnector.connect();
+             PreparedStatement pstmt = conn.prepareStatement(MERGE_SQL)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            result.writeTo(new DataOutputStream(bytes));
+            pstmt.setString(1, key);
+            pstmt.setString(2, symbol);
+            pstmt.setLong(3, fingerprint.getRowCount());
+            pstmt.setLong(4, fingerprint.getChecksum());
+            pstmt.setBytes(5, bytes.toByteArray());
+            pstmt.executeUpdate();
+        } catch (SQLException | IOException e) {
+            LOG.error("Failed to cache the backtest result.", e);
+        }
+    }
+
+    /**
+     * @return the SHA-256 of the backtest inputs other than the data, in hex
+     */
+    private static String key(String symbol, Date startDate, Date endDate, String strategyKey, double initialCashBalance) {
+        String inputs = symbol + "|" + startDate + "|" + endDate + "|" + initialCashBalance + "|" + strategyKey;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(inputs.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.backtest.engine;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Every execution of one backtest in order, kept in primitive columns. Two journals can be compared bit for bit,
+ * e.g. to check that a run gives the same trades on any thread.
+ */
+public final class TradeJournal {
+    private int size;
+    private int[] epochDays = new int[16];
+    private boolean[] buys = new boolean[16];
+    private double[] prices = new double[16];
+    private double[] shares = new double[16];
+    private double[] cashBalances = new double[16];
+
+    /**
+     * @param date
+     * @param buy
+     * @param price
+     * @param shares bought or sold
+     * @param cashBalance after the execution
+     */
+    void record(LocalDate date, boolean buy, double price, double shares, double cashBalance) {
+        if (size == epochDays.length) {
+            int capacity = size * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            buys = Arrays.copyOf(buys, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            this.shares = Arrays.copyOf(this.shares, capacity);
+            cashBalances = Arrays.copyOf(cashBalances, capacity);
+        }
+        epochDays[size] = date == null ? Integer.MIN_VALUE : (int) date.toEpochDay();
+        buys[size] = buy;
+        prices[size] = price;
+        this.shares[size] = shares;
+        cashBalances[size] = cashBalance;
+        size++;
+    }
+
+    public int size() {return size;}
+    public int getEpochDay(int i) {return epochDays[i];}
+    public boolean isBuy(int i) {return buys[i];}
+    public double getPrice(int i) {return prices[i];}
+    public double getShares(int i) {return shares[i];}
+    public double getCashBalance(int i) {return cashBalances[i];}
+
+    /**
+     * @param other
+     * @return the first execution that differs in any bit, the shorter size if one journal is a prefix of the
+     *         other, -1 if both are identical
+     */
+    public int firstDifference(TradeJournal other) {
+        int common = Math.min(size, other.size);
+        for (int i = 0; i < common; i++) {
+            if (epochDays[i] != other.epochDays[i]
+                    || buys[i] != other.buys[i]
+                    || Double.doubleToRawLongBits(prices[i]) != Double.doubleToRawLongBits(other.prices[i])
+                    || Double.doubleToRawLongBits(shares[i]) != Double.doubleToRawLongBits(other.shares[i])
+                    || Double.doubleToRawLongBits(cashBalances[i]) != Double.doubleToRawLongBits(other.cashBalances[i])) {
+                return i;
+            }
+        }
+        return size == other.size ? -1 : common;
+    }
+
+    /**
+     * @return one execution in readable form, e.g. for reporting a difference
+     */
+    public String describe(int i) {
+        if (i >= size) {
+            return "none";
+        }
+        return (buys[i] ? "BUY " : "SELL ") + shares[i] + " at " + prices[i] + " on "
+                + (epochDays[i] == Integer.MIN_VALUE ? "?" : LocalDate.ofEpochDay(epochDays[i])) + ", cash " + cashBalances[i];
+    }
+}
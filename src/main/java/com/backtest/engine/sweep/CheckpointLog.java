@@ -0,0 +1,208 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.engine.BacktestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of completed sweep results, used to resume a sweep after a crash.
+ * <p>
+ * Each record is {@code [int length][int crc32][unit id, result]}. Records are written to the file as they
+ * complete, and {@code fsync} is batched: every {@code syncEvery} records or {@code syncIntervalMillis},
+ * whichever comes first, and on close. A background thread syncs a tail that has been waiting for the interval
+ * when no more records arrive. A crash can lose at most the unsynced tail; on open the log is read up to the last
+ * record with a valid length and checksum and anything after it is truncated.
+ * <p>
+ * Only successful results are logged, so units that failed are run again on resume.
+ */
+public class CheckpointLog implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointLog.class);
+    private static final int MAGIC = 0x42544350; // "BTCP"
+    private static final int HEADER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final Map<String, BacktestResult> completed;
+    private final int syncEvery;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService syncer;
+    private int unsyncedRecords;
+    private long lastSync = System.currentTimeMillis();
+
+    private CheckpointLog(FileChannel channel, Map<String, BacktestResult> completed, int syncEvery, long syncIntervalMillis) {
+        this.channel = channel;
+        this.completed = completed;
+        this.syncEvery = syncEvery;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, syncIntervalMillis);
+        syncer.scheduleWithFixedDelay(this::syncIfDue, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a checkpoint, recovering the results of a previous run if the file exists
+     * @param path
+     * @param syncEvery fsync after this many records
+     * @param syncIntervalMillis fsync when this much time passed since the last one
+     * @return the opened log
+     * @throws IOException if the file cannot be opened or is not a checkpoint
+     */
+    public static CheckpointLog open(Path path, int syncEvery, long syncIntervalMillis) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Map<String, BacktestResult> completed = new HashMap<>();
+            if (channel.size() < HEADER_SIZE) {
+                channel.truncate(0); // New file, or the header itself was torn
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip();
+                channel.write(header);
+                channel.force(true);
+            } else {
+                long validEnd = recover(channel, completed);
+                if (validEnd < channel.size()) {
+                    LOG.warn("Truncating {} bytes of incomplete checkpoint records in {}", channel.size() - validEnd, path);
+                    channel.truncate(validEnd);
+                    channel.force(true);
+                }
+                LOG.info("Recovered {} completed work units from {}", completed.size(), path);
+            }
+            channel.position(channel.size());
+            return new CheckpointLog(channel, completed, syncEvery, syncIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read all valid records
+     * @return the offset after the last valid record
+     */
+    private static long recover(FileChannel channel, Map<String, BacktestResult> completed) throws IOException {
+        channel.position(0);
+        InputStream stream = Channels.newInputStream(channel); // Not closed, that would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a checkpoint file");
+        }
+        long validEnd = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        try {
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) break;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                completed.put(record.readUTF(), BacktestResult.readFrom(record));
+                validEnd += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Torn write at the tail, everything before validEnd is intact
+        }
+        return validEnd;
+    }
+
+    /**
+     * @return the results recovered on open, by work unit id
+     */
+    public Map<String, BacktestResult> getCompleted() {
+        return Collections.unmodifiableMap(completed);
+    }
+
+    public boolean isCompleted(WorkUnit unit) {
+        return completed.containsKey(unit.getId());
+    }
+
+    /**
+     * Append a completed result. Safe to call from several threads.
+     * @param unit
+     * @param result
+     * @throws IOException
+     */
+    public void append(WorkUnit unit, BacktestResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // Length and checksum are filled in below
+        out.writeInt(0);
+        out.writeUTF(unit.getId());
+        result.writeTo(out);
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int length = record.limit() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+
+        synchronized (this) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            unsyncedRecords++;
+            long now = System.currentTimeMillis();
+            if (unsyncedRecords >= syncEvery || now - lastSync >= syncIntervalMillis) {
+                sync(now);
+            }
+        }
+    }
+
+    private synchronized void syncIfDue() {
+        long now = System.currentTimeMillis();
+        if (unsyncedRecords == 0 || now - lastSync < syncIntervalMillis || !channel.isOpen()) {
+            return;
+        }
+        try {
+            sync(now);
+        } catch (IOException e) {
+            LOG.error("Failed to sync the checkpoint", e);
+        }
+    }
+
+    private void sync(long now) throws IOException {
+        channel.force(false);
+        unsyncedRecords = 0;
+        lastSync = now;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        syncer.shutdownNow();
+        try {
+            if (unsyncedRecords > 0) {
+                sync(System.currentTimeMillis());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
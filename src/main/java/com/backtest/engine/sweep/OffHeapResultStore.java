@@ -0,0 +1,373 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.engine.BacktestResult;
+import com.backtest.strategy.StrategyParameters;
+import com.backtest.util.PrimitiveSort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Result sink that keeps sweep results off the Java heap in fixed-size records.
+ * <p>
+ * Record layout ({@value #RECORD_SIZE} bytes, native byte order):
+ * <pre>
+ *   0 int symbolId        4 int strategyId     8 int startEpochDay   12 int endEpochDay
+ *  16 double initialCash 24 double[4] parameters (in the sorted parameter-name order of the strategy)
+ *  56 double finalCash   64 double sharesOwned 72 double lastPrice   80 int tradeCount  84 int unused
+ *  88 double netProfit (ranking key)
+ * </pre>
+ * Symbols and strategies are dictionary-encoded, so the heap only holds one entry per distinct symbol and
+ * strategy. The best {@code topK} records are kept in a bounded min-heap as they stream in. When the in-memory
+ * records exceed the memory budget they are sorted by net profit and spilled to a run file; the full ranking is
+ * a k-way merge of the runs.
+ */
+public class OffHeapResultStore implements ResultSink, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapResultStore.class);
+    static final int RECORD_SIZE = 96;
+    private static final int MAX_PARAMETERS = 4;
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final int MERGE_BUFFER_RECORDS = 1 << 12;
+
+    private static final int SYMBOL = 0;
+    private static final int STRATEGY = 4;
+    private static final int START_DAY = 8;
+    private static final int END_DAY = 12;
+    private static final int INITIAL_CASH = 16;
+    private static final int PARAMETERS = 24;
+    private static final int FINAL_CASH = 56;
+    private static final int SHARES = 64;
+    private static final int LAST_PRICE = 72;
+    private static final int TRADES = 80;
+    private static final int NET_PROFIT = 88;
+
+    // Dictionaries
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final Map<String, Integer> strategyIds = new HashMap<>();
+    private final List<String> strategyNames = new ArrayList<>();
+    private final List<String[]> strategyParameterNames = new ArrayList<>();
+
+    // In-memory records
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final int maxChunks;
+    private int recordsInMemory;
+
+    // Top-K: heap of slots in topRecords, ordered by key ascending so the worst is at the root
+    private final int topK;
+    private final ByteBuffer topRecords;
+    private final double[] heapKeys;
+    private final int[] heapSlots;
+    private int heapSize;
+
+    private final Path spillDirectory;
+    private final List<Path> runs = new ArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.nativeOrder());
+    private long size;
+
+    /**
+     * @param topK the number of best results to keep for {@link #getTop()}
+     * @param memoryBudgetBytes the off-heap memory for records before they are spilled to disk
+     * @param spillDirectory where sorted runs are written
+     */
+    public OffHeapResultStore(int topK, long memoryBudgetBytes, Path spillDirectory) {
+        this.topK = topK;
+        this.topRecords = ByteBuffer.allocateDirect(Math.max(topK, 1) * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        this.heapKeys = new double[topK];
+        this.heapSlots = new int[topK];
+        this.maxChunks = (int) Math.max(1, memoryBudgetBytes / ((long) CHUNK_RECORDS * RECORD_SIZE));
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public synchronized void accept(WorkUnit unit, BacktestResult result) {
+        encode(unit, result, scratch);
+        double key = result.getNetProfit();
+        offerTop(key);
+        if (recordsInMemory == maxChunks * CHUNK_RECORDS) {
+            spill();
+        }
+        int chunk = recordsInMemory / CHUNK_RECORDS;
+        if (chunk == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder()));
+        }
+        chunks.get(chunk).put((recordsInMemory % CHUNK_RECORDS) * RECORD_SIZE, scratch, 0, RECORD_SIZE);
+        recordsInMemory++;
+        size++;
+    }
+
+    /**
+     * @return the number of results stored
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the best results, highest net profit first
+     */
+    public synchronized List<Map.Entry<WorkUnit, BacktestResult>> getTop() {
+        int[] order = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) order[i] = i;
+        PrimitiveSort.sortIndexesDescending(heapKeys, order, 0, heapSize);
+
+        List<Map.Entry<WorkUnit, BacktestResult>> top = new ArrayList<>(heapSize);
+        for (int i : order) {
+            top.add(decode(topRecords, heapSlots[i] * RECORD_SIZE));
+        }
+        return top;
+    }
+
+    /**
+     * Stream all results ordered by net profit, highest first
+     * @param consumer
+     */
+    public synchronized void forEachRanked(ResultSink consumer) {
+        if (runs.isEmpty()) {
+            // Everything fits in memory, no need to touch the disk
+            int[] order = sortInMemory();
+            for (int index : order) {
+                Map.Entry<WorkUnit, BacktestResult> entry = decode(chunks.get(index / CHUNK_RECORDS), (index % CHUNK_RECORDS) * RECORD_SIZE);
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        if (recordsInMemory > 0) {
+            spill();
+        }
+        mergeRuns(consumer);
+    }
+
+    private void offerTop(double key) {
+        if (topK == 0) return;
+        int slot;
+        if (heapSize < topK) {
+            slot = heapSize;
+            heapKeys[heapSize] = key;
+            heapSlots[heapSize] = slot;
+            siftUp(heapSize++);
+        } else if (key > heapKeys[0]) {
+            slot = heapSlots[0];
+            heapKeys[0] = key;
+            siftDown(0);
+        } else {
+            return;
+        }
+        topRecords.put(slot * RECORD_SIZE, scratch, 0, RECORD_SIZE);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= heapKeys[i]) break;
+            swapHeap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) break;
+            int smallest = left + 1 < heapSize && heapKeys[left + 1] < heapKeys[left] ? left + 1 : left;
+            if (heapKeys[i] <= heapKeys[smallest]) break;
+            swapHeap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swapHeap(int a, int b) {
+        double key = heapKeys[a];
+        heapKeys[a] = heapKeys[b];
+        heapKeys[b] = key;
+        int slot = heapSlots[a];
+        heapSlots[a] = heapSlots[b];
+        heapSlots[b] = slot;
+    }
+
+    private int[] sortInMemory() {
+        double[] keys = new double[recordsInMemory];
+        int[] order = new int[recordsInMemory];
+        for (int i = 0; i < recordsInMemory; i++) {
+            keys[i] = chunks.get(i / CHUNK_RECORDS).getDouble((i % CHUNK_RECORDS) * RECORD_SIZE + NET_PROFIT);
+            order[i] = i;
+        }
+        PrimitiveSort.sortIndexesDescending(keys, order, 0, recordsInMemory);
+        return order;
+    }
+
+    /**
+     * Write the in-memory records to a new run file, sorted by net profit
+     */
+    private void spill() {
+        int[] order = sortInMemory();
+        try {
+            Files.createDirectories(spillDirectory);
+            Path run = Files.createTempFile(spillDirectory, "results-", ".run");
+            try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(MERGE_BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+                for (int index : order) {
+                    if (!buffer.hasRemaining()) {
+                        writeFully(channel, buffer);
+                    }
+                    ByteBuffer chunk = chunks.get(index / CHUNK_RECORDS);
+                    buffer.put(buffer.position(), chunk, (index % CHUNK_RECORDS) * RECORD_SIZE, RECORD_SIZE);
+                    buffer.position(buffer.position() + RECORD_SIZE);
+                }
+                writeFully(channel, buffer);
+            }
+            runs.add(run);
+            LOG.info("Spilled {} results to {}", recordsInMemory, run);
+            recordsInMemory = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill results to " + spillDirectory, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void mergeRuns(ResultSink consumer) {
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            PriorityQueue<RunCursor> heads = new PriorityQueue<>((a, b) -> Double.compare(b.key(), a.key()));
+            for (Path run : runs) {
+                RunCursor cursor = new RunCursor(FileChannel.open(run, StandardOpenOption.READ));
+                cursors.add(cursor);
+                if (cursor.advance()) heads.add(cursor);
+            }
+            while (!heads.isEmpty()) {
+                RunCursor cursor = heads.poll();
+                Map.Entry<WorkUnit, BacktestResult> entry = decode(cursor.buffer, cursor.buffer.position());
+                consumer.accept(entry.getKey(), entry.getValue());
+                if (cursor.advance()) heads.add(cursor);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to merge result runs", e);
+        } finally {
+            for (RunCursor cursor : cursors) {
+                try {
+                    cursor.channel.close();
+                } catch (IOException e) {
+                    LOG.warn("Failed to close result run", e);
+                }
+            }
+        }
+    }
+
+    private void encode(WorkUnit unit, BacktestResult result, ByteBuffer record) {
+        Map<String, Double> parameters = unit.getParameters().asMap();
+        if (parameters.size() > MAX_PARAMETERS) {
+            throw new IllegalArgumentException("At most " + MAX_PARAMETERS + " parameters can be stored, got " + parameters.size());
+        }
+        record.putInt(SYMBOL, symbolIds.computeIfAbsent(unit.getSymbol(), symbol -> {
+            symbols.add(symbol);
+            return symbols.size() - 1;
+        }));
+        record.putInt(STRATEGY, strategyIds.computeIfAbsent(unit.getStrategyName() + "|" + parameters.keySet(), key -> {
+            strategyNames.add(unit.getStrategyName());
+            strategyParameterNames.add(parameters.keySet().toArray(new String[0]));
+            return strategyNames.size() - 1;
+        }));
+        record.putInt(START_DAY, (int) unit.getStartDate().toEpochDay());
+        record.putInt(END_DAY, (int) unit.getEndDate().toEpochDay());
+        record.putDouble(INITIAL_CASH, unit.getInitialCashBalance());
+        int i = 0;
+        for (double value : parameters.values()) {
+            record.putDouble(PARAMETERS + 8 * i++, value);
+        }
+        record.putDouble(FINAL_CASH, result.getFinalCashBalance());
+        record.putDouble(SHARES, result.getSharesOwned());
+        record.putDouble(LAST_PRICE, result.getLastPrice());
+        record.putInt(TRADES, result.getTradeCount());
+        record.putDouble(NET_PROFIT, result.getNetProfit());
+    }
+
+    private Map.Entry<WorkUnit, BacktestResult> decode(ByteBuffer buffer, int offset) {
+        int strategy = buffer.getInt(offset + STRATEGY);
+        String[] parameterNames = strategyParameterNames.get(strategy);
+        Map<String, Double> parameters = new HashMap<>();
+        for (int i = 0; i < parameterNames.length; i++) {
+            parameters.put(parameterNames[i], buffer.getDouble(offset + PARAMETERS + 8 * i));
+        }
+        double initialCash = buffer.getDouble(offset + INITIAL_CASH);
+        WorkUnit unit = new WorkUnit(symbols.get(buffer.getInt(offset + SYMBOL)), strategyNames.get(strategy),
+                StrategyParameters.of(parameters),
+                LocalDate.ofEpochDay(buffer.getInt(offset + START_DAY)),
+                LocalDate.ofEpochDay(buffer.getInt(offset + END_DAY)),
+                initialCash);
+        BacktestResult result = new BacktestResult(initialCash,
+                buffer.getDouble(offset + FINAL_CASH),
+                buffer.getDouble(offset + SHARES),
+                buffer.getDouble(offset + LAST_PRICE),
+                buffer.getInt(offset + TRADES));
+        return Map.entry(unit, result);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        chunks.clear(); // Direct buffers are freed once unreachable
+        recordsInMemory = 0;
+    }
+
+    /**
+     * Sequential reader of one sorted run
+     */
+    private static final class RunCursor {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(MERGE_BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        private boolean started;
+
+        RunCursor(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        /**
+         * Move to the next record, buffer.position() is its offset
+         * @return false at the end of the run
+         */
+        boolean advance() throws IOException {
+            if (started) {
+                buffer.position(buffer.position() + RECORD_SIZE);
+            }
+            started = true;
+            if (buffer.remaining() < RECORD_SIZE) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // Refill the whole buffer, or up to the end of the run
+                }
+                buffer.flip();
+            }
+            return buffer.remaining() >= RECORD_SIZE;
+        }
+
+        double key() {
+            return buffer.getDouble(buffer.position() + NET_PROFIT);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.engine.BacktestResult;
+
+/**
+ * Receives sweep results as they complete. Called concurrently from worker threads.
+ */
+public interface ResultSink {
+    void accept(WorkUnit unit, BacktestResult result);
+}
@@ -0,0 +1,298 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.engine.BacktestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the work units of a sweep to worker JVMs connected over local sockets (see {@link SweepWorker}).
+ * <p>
+ * Workers pull small batches, so faster workers simply take more units. A unit leased to a worker is put back
+ * in the queue if the worker disconnects. Once the queue is empty, an idle worker gets a second copy of the
+ * oldest unit that has been running longer than {@code stealAfterMillis}, and the first result to arrive wins,
+ * so a slow or hung worker cannot hold up the end of the sweep.
+ */
+public class SweepCoordinator {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepCoordinator.class);
+
+    private final int port;
+    private final long stealAfterMillis;
+    private final List<Process> spawnedWorkers = new ArrayList<>();
+    private final AtomicInteger connectedWorkers = new AtomicInteger();
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
+
+    // Sweep state, guarded by 'this'
+    private List<WorkUnit> units;
+    private boolean[] done;
+    private final Deque<Integer> queue = new ArrayDeque<>();
+    private final Map<Integer, Lease> leases = new HashMap<>();
+    private int remaining;
+    private int failed;
+
+    /**
+     * @param port the local port workers connect to, 0 for any free port
+     * @param stealAfterMillis how long a unit may run before an idle worker also runs it
+     */
+    public SweepCoordinator(int port, long stealAfterMillis) {
+        this.port = port;
+        this.stealAfterMillis = stealAfterMillis;
+    }
+
+    /**
+     * Run the sweep on connected workers, optionally starting worker JVMs on this host
+     * @param units
+     * @param checkpoint the log to resume from and append to, may be null
+     * @param sink receives the result of every unit, called concurrently
+     * @param spawnWorkers the number of worker JVMs to start, 0 if workers are started separately
+     * @param threadsPerWorker the worker threads of each started JVM
+     * @return the number of units that failed
+     * @throws IOException if the server socket cannot be opened or all started workers exited
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public int run(List<WorkUnit> units, CheckpointLog checkpoint, ResultSink sink, int spawnWorkers, int threadsPerWorker)
+            throws IOException, InterruptedException {
+        List<WorkUnit> pending = new ArrayList<>();
+        for (WorkUnit unit : units) {
+            BacktestResult previous = checkpoint == null ? null : checkpoint.getCompleted().get(unit.getId());
+            if (previous != null) {
+                sink.accept(unit, previous);
+            } else {
+                pending.add(unit);
+            }
+        }
+        // Units on the same series are handed out together, so workers reuse their loaded data
+        pending.sort(Comparator.comparing(WorkUnit::getSeriesKey));
+        synchronized (this) {
+            this.units = pending;
+            this.done = new boolean[pending.size()];
+            this.remaining = pending.size();
+            for (int i = 0; i < pending.size(); i++) {
+                queue.add(i);
+            }
+        }
+        LOG.info("Coordinating {} work units ({} resumed from checkpoint)", pending.size(), units.size() - pending.size());
+
+        long start = System.nanoTime();
+        try (ServerSocket server = new ServerSocket(port, 64, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> acceptWorkers(server, checkpoint, sink), "sweep-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            LOG.info("Waiting for workers on port {}", server.getLocalPort());
+            for (int i = 0; i < spawnWorkers; i++) {
+                spawnedWorkers.add(spawnWorker(server.getLocalPort(), threadsPerWorker));
+            }
+            awaitCompletion();
+        } finally {
+            for (Process process : spawnedWorkers) {
+                // Workers exit on DONE, only stragglers that never asked again are stopped
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            }
+        }
+        LOG.info("Distributed sweep finished: {} units, {} failed in {} ms", pending.size(), failed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return failed;
+    }
+
+    private synchronized void awaitCompletion() throws InterruptedException, IOException {
+        while (remaining > 0) {
+            wait(1000);
+            if (remaining > 0 && !spawnedWorkers.isEmpty() && connectedWorkers.get() == 0
+                    && spawnedWorkers.stream().noneMatch(Process::isAlive)) {
+                throw new IOException("All worker processes exited with " + remaining + " work units left");
+            }
+        }
+        // Let connected workers ask once more and receive DONE before the server goes away
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectedWorkers.get() > 0 && System.currentTimeMillis() < deadline) {
+            wait(100);
+        }
+    }
+
+    private void acceptWorkers(ServerSocket server, CheckpointLog checkpoint, ResultSink sink) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serveWorker(socket, checkpoint, sink), "sweep-worker-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    LOG.error("Failed to accept worker connection", e);
+                }
+            }
+        }
+    }
+
+    private void serveWorker(Socket socket, CheckpointLog checkpoint, ResultSink sink) {
+        int workerId = nextWorkerId.getAndIncrement();
+        connectedWorkers.incrementAndGet();
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte type = in.readByte();
+                if (type == SweepProtocol.REQUEST) {
+                    List<Integer> batch = assign(workerId, in.readInt());
+                    if (batch == null) {
+                        out.writeByte(SweepProtocol.DONE);
+                        out.flush();
+                        return;
+                    }
+                    if (batch.isEmpty()) {
+                        out.writeByte(SweepProtocol.WAIT);
+                    } else {
+                        out.writeByte(SweepProtocol.UNITS);
+                        out.writeInt(batch.size());
+                        for (int index : batch) {
+                            out.writeLong(index);
+                            units.get(index).writeTo(out);
+                        }
+                    }
+                    out.flush();
+                } else if (type == SweepProtocol.RESULT) {
+                    int index = (int) in.readLong();
+                    complete(index, BacktestResult.readFrom(in), checkpoint, sink);
+                } else if (type == SweepProtocol.FAILED) {
+                    int index = (int) in.readLong();
+                    String message = in.readUTF();
+                    LOG.error("Work unit {} failed on worker {}: {}", units.get(index), workerId, message);
+                    complete(index, null, checkpoint, sink);
+                } else {
+                    throw new IOException("Unknown message type " + type);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Lost worker {}: {}", workerId, e.getMessage());
+        } finally {
+            connectedWorkers.decrementAndGet();
+            release(workerId);
+        }
+    }
+
+    /**
+     * @return up to max unit indexes leased to the worker, an empty list if it should wait, null when the sweep is done
+     */
+    private synchronized List<Integer> assign(int workerId, int max) {
+        if (remaining == 0) {
+            return null;
+        }
+        List<Integer> batch = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (batch.size() < max && !queue.isEmpty()) {
+            int index = queue.poll();
+            leases.put(index, new Lease(workerId, now));
+            batch.add(index);
+        }
+        if (batch.isEmpty()) {
+            // Steal: run the oldest slow unit again on this idle worker
+            Map.Entry<Integer, Lease> oldest = null;
+            for (Map.Entry<Integer, Lease> entry : leases.entrySet()) {
+                Lease lease = entry.getValue();
+                if (lease.owners.size() == 1 && !lease.owners.contains(workerId) && now - lease.start >= stealAfterMillis
+                        && (oldest == null || lease.start < oldest.getValue().start)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest != null) {
+                oldest.getValue().owners.add(workerId);
+                batch.add(oldest.getKey());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Record the first result of a unit, later duplicates from stolen copies are ignored
+     * @param result null if the unit failed
+     */
+    private void complete(int index, BacktestResult result, CheckpointLog checkpoint, ResultSink sink) throws IOException {
+        synchronized (this) {
+            if (done[index]) {
+                return;
+            }
+            done[index] = true;
+            leases.remove(index);
+        }
+        try {
+            if (result != null) {
+                WorkUnit unit = units.get(index);
+                if (checkpoint != null) {
+                    checkpoint.append(unit, result);
+                }
+                sink.accept(unit, result);
+            }
+        } finally {
+            synchronized (this) {
+                if (result == null) failed++;
+                remaining--;
+                if (remaining % 1000 == 0) {
+                    LOG.info("{} work units remaining", remaining);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Put the units of a lost worker back at the front of the queue
+     */
+    private synchronized void release(int workerId) {
+        List<Integer> requeued = new ArrayList<>();
+        leases.entrySet().removeIf(entry -> {
+            Lease lease = entry.getValue();
+            if (!lease.owners.remove(workerId) || !lease.owners.isEmpty()) {
+                return false;
+            }
+            requeued.add(entry.getKey());
+            return true;
+        });
+        for (int i = requeued.size() - 1; i >= 0; i--) {
+            queue.addFirst(requeued.get(i));
+        }
+        if (!requeued.isEmpty()) {
+            LOG.warn("Requeued {} work units of worker {}", requeued.size(), workerId);
+        }
+        notifyAll();
+    }
+
+    private static Process spawnWorker(int port, int threads) throws IOException {
+        String java = System.getProperty("java.home") + "/bin/java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                SweepWorker.class.getName(), "--port=" + port, "--threads=" + threads)
+                .inheritIO()
+                .start();
+    }
+
+    private static final class Lease {
+        private final Set<Integer> owners = new HashSet<>(2);
+        private final long start;
+
+        Lease(int workerId, long start) {
+            this.owners.add(workerId);
+            this.start = start;
+        }
+    }
+}
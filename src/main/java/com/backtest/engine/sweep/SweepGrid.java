@@ -0,0 +1,67 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.strategy.ParameterSpec;
+import com.backtest.strategy.StrategyFactory;
+import com.backtest.strategy.StrategyParameters;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the work units of a sweep: every symbol times every point of each strategy's parameter grid.
+ */
+public final class SweepGrid {
+
+    private SweepGrid() {
+    }
+
+    /**
+     * @param symbols
+     * @param strategyNames
+     * @param startDate
+     * @param endDate
+     * @param initialCashBalance
+     * @param pointsPerParameter evenly spaced values per parameter over its range
+     * @return the work units, grouped by strategy and symbol
+     */
+    public static List<WorkUnit> build(List<String> symbols, List<String> strategyNames, LocalDate startDate, LocalDate endDate,
+                                       double initialCashBalance, int pointsPerParameter) {
+        List<WorkUnit> units = new ArrayList<>();
+        for (String strategyName : strategyNames) {
+            List<StrategyParameters> grid = parameterGrid(StrategyFactory.getParameterSpecs(strategyName), pointsPerParameter);
+            for (String symbol : symbols) {
+                for (StrategyParameters parameters : grid) {
+                    units.add(new WorkUnit(symbol, strategyName.toUpperCase(), parameters, startDate, endDate, initialCashBalance));
+                }
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Cartesian product of the grids of all parameters
+     */
+    static List<StrategyParameters> parameterGrid(List<ParameterSpec> specs, int pointsPerParameter) {
+        List<Map<String, Double>> points = new ArrayList<>();
+        points.add(new HashMap<>());
+        for (ParameterSpec spec : specs) {
+            List<Map<String, Double>> expanded = new ArrayList<>();
+            for (Map<String, Double> point : points) {
+                for (double value : spec.grid(pointsPerParameter)) {
+                    Map<String, Double> next = new HashMap<>(point);
+                    next.put(spec.getName(), value);
+                    expanded.add(next);
+                }
+            }
+            points = expanded;
+        }
+        List<StrategyParameters> grid = new ArrayList<>();
+        for (Map<String, Double> point : points) {
+            grid.add(StrategyParameters.of(point));
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,26 @@
+package com.backtest.engine.sweep;
+
+/**
+ * Message types of the binary coordinator/worker protocol. Every message starts with its type byte.
+ * <pre>
+ * worker -&gt; coordinator
+ *   REQUEST  int maxUnits                     ask for work, answered with UNITS, WAIT or DONE
+ *   RESULT   long unitIndex, BacktestResult   no answer
+ *   FAILED   long unitIndex, UTF message      no answer
+ * coordinator -&gt; worker
+ *   UNITS    int count, count x (long unitIndex, WorkUnit)
+ *   WAIT     nothing to hand out right now, ask again shortly
+ *   DONE     the sweep is finished, disconnect
+ * </pre>
+ */
+final class SweepProtocol {
+    static final byte REQUEST = 1;
+    static final byte RESULT = 2;
+    static final byte FAILED = 3;
+    static final byte UNITS = 10;
+    static final byte WAIT = 11;
+    static final byte DONE = 12;
+
+    private SweepProtocol() {
+    }
+}
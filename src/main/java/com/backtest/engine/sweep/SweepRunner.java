@@ -0,0 +1,162 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.StockData;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.ExecutionEngine;
+import com.backtest.strategy.Strategy;
+import com.backtest.strategy.StrategyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work units of a sweep on a thread pool.
+ * <p>
+ * Each price series is loaded once and shared by all units on it, then released when its last unit finished.
+ * With a {@link CheckpointLog} every result is appended as it completes, and units already in the log are not
+ * run again but reported to the sink from the log, so a restarted sweep only computes what is missing.
+ * Failed units are not logged, so a restart retries them, e.g. after a series failed to load.
+ */
+public class SweepRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepRunner.class);
+
+    /**
+     * Loads the price data of one symbol and date range
+     */
+    public interface SeriesLoader {
+        List<StockData> load(String symbol, LocalDate startDate, LocalDate endDate);
+    }
+
+    private final int threads;
+    private final SeriesLoader loader;
+
+    public SweepRunner(int threads) {
+        this(threads, (symbol, start, end) -> DataRepository.retrievePriceData(symbol, Date.valueOf(start), Date.valueOf(end)));
+    }
+
+    public SweepRunner(int threads, SeriesLoader loader) {
+        this.threads = threads;
+        this.loader = loader;
+    }
+
+    /**
+     * Run one work unit on already loaded data
+     * @param unit
+     * @param marketData
+     * @return the result of the backtest
+     * @throws IllegalArgumentException if the strategy is unknown or the data is insufficient
+     */
+    public static BacktestResult runUnit(WorkUnit unit, List<StockData> marketData) {
+        Strategy strategy = StrategyFactory.getStrategy(unit.getStrategyName(), unit.getParameters());
+        return new ExecutionEngine(unit.getInitialCashBalance(), false).runBackTest(strategy, marketData);
+    }
+
+    /**
+     * Run all units that are not completed in the checkpoint yet
+     * @param units
+     * @param checkpoint the log to resume from and append to, may be null
+     * @param sink receives the result of every unit, called concurrently
+     * @return the number of units that failed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public int run(List<WorkUnit> units, CheckpointLog checkpoint, ResultSink sink) throws InterruptedException {
+        List<WorkUnit> pending = new ArrayList<>();
+        int resumed = 0;
+        for (WorkUnit unit : units) {
+            BacktestResult previous = checkpoint == null ? null : checkpoint.getCompleted().get(unit.getId());
+            if (previous != null) {
+                sink.accept(unit, previous);
+                resumed++;
+            } else {
+                pending.add(unit);
+            }
+        }
+        LOG.info("Sweep of {} work units: {} resumed from checkpoint, {} to run on {} threads", units.size(), resumed, pending.size(), threads);
+
+        // Units on the same series run back to back, so the series is loaded once and released early
+        pending.sort(Comparator.comparing(WorkUnit::getSeriesKey));
+        Map<String, SharedSeries> series = new ConcurrentHashMap<>();
+        Map<String, Integer> unitsPerSeries = new HashMap<>();
+        for (WorkUnit unit : pending) {
+            unitsPerSeries.merge(unit.getSeriesKey(), 1, Integer::sum);
+        }
+        unitsPerSeries.forEach((key, count) -> series.put(key, new SharedSeries(count)));
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (WorkUnit unit : pending) {
+                executor.execute(() -> {
+                    SharedSeries shared = series.get(unit.getSeriesKey());
+                    try {
+                        BacktestResult result = runUnit(unit, shared.get(loader, unit));
+                        if (checkpoint != null) {
+                            checkpoint.append(unit, result);
+                        }
+                        sink.accept(unit, result);
+                        int done = completed.incrementAndGet();
+                        if (done % 1000 == 0) {
+                            LOG.info("Completed {}/{} work units", done, pending.size());
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        LOG.error("Work unit {} failed", unit, e);
+                    } finally {
+                        if (shared.release()) {
+                            series.remove(unit.getSeriesKey());
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        LOG.info("Sweep finished: {} completed, {} failed in {} ms", completed.get(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return failed.get();
+    }
+
+    /**
+     * A price series loaded on first use and shared by a known number of units
+     */
+    private static final class SharedSeries {
+        private final AtomicInteger remaining;
+        private List<StockData> data;
+
+        SharedSeries(int units) {
+            this.remaining = new AtomicInteger(units);
+        }
+
+        synchronized List<StockData> get(SeriesLoader loader, WorkUnit unit) {
+            if (data == null) {
+                data = loader.load(unit.getSymbol(), unit.getStartDate(), unit.getEndDate());
+            }
+            return data;
+        }
+
+        /**
+         * @return true if this was the last unit on the series
+         */
+        boolean release() {
+            return remaining.decrementAndGet() == 0;
+        }
+    }
+}
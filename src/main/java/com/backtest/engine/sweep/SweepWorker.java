@@ -0,0 +1,156 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.StockData;
+import com.backtest.engine.BacktestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker JVM of a distributed sweep. Each worker thread holds its own connection to the {@link SweepCoordinator},
+ * pulls small batches of work units, runs them and streams the results back in binary form.
+ * <p>
+ * Usage: {@code SweepWorker --port=9123 [--host=127.0.0.1] [--threads=N] [--batch=4]}
+ */
+public class SweepWorker {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepWorker.class);
+    private static final int CACHED_SERIES = 16;
+    private static final long WAIT_MILLIS = 50;
+
+    private final String host;
+    private final int port;
+    private final int batchSize;
+    private final SweepRunner.SeriesLoader loader;
+    // Recently used price series, shared by the worker threads of this JVM
+    private final Map<String, List<StockData>> seriesCache = new LinkedHashMap<>(CACHED_SERIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<StockData>> eldest) {
+            return size() > CACHED_SERIES;
+        }
+    };
+
+    public SweepWorker(String host, int port, int batchSize, SweepRunner.SeriesLoader loader) {
+        this.host = host;
+        this.port = port;
+        this.batchSize = batchSize;
+        this.loader = loader;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 0) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        if (!options.containsKey("port")) {
+            LOG.warn("Please provide the coordinator port, e.g. --port=9123");
+            return;
+        }
+        SweepWorker worker = new SweepWorker(
+                options.getOrDefault("host", InetAddress.getLoopbackAddress().getHostAddress()),
+                Integer.parseInt(options.get("port")),
+                Integer.parseInt(options.getOrDefault("batch", "4")),
+                (symbol, start, end) -> DataRepository.retrievePriceData(symbol, Date.valueOf(start), Date.valueOf(end)));
+        worker.run(Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+    }
+
+    /**
+     * Run worker threads until the coordinator reports the sweep is done
+     * @param threads
+     * @throws InterruptedException
+     */
+    public void run(int threads) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "sweep-worker-" + i);
+            thread.start();
+            workers.add(thread);
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+    }
+
+    private void work() {
+        try (Socket socket = new Socket(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            int completed = 0;
+            while (true) {
+                out.writeByte(SweepProtocol.REQUEST);
+                out.writeInt(batchSize);
+                out.flush();
+
+                byte type = in.readByte();
+                if (type == SweepProtocol.DONE) {
+                    LOG.info("Sweep done, {} work units completed by {}", completed, Thread.currentThread().getName());
+                    return;
+                }
+                if (type == SweepProtocol.WAIT) {
+                    Thread.sleep(WAIT_MILLIS);
+                    continue;
+                }
+                if (type != SweepProtocol.UNITS) {
+                    throw new IOException("Unknown message type " + type);
+                }
+
+                int count = in.readInt();
+                long[] indexes = new long[count];
+                WorkUnit[] units = new WorkUnit[count];
+                for (int i = 0; i < count; i++) {
+                    indexes[i] = in.readLong();
+                    units[i] = WorkUnit.readFrom(in);
+                }
+                for (int i = 0; i < count; i++) {
+                    try {
+                        BacktestResult result = SweepRunner.runUnit(units[i], series(units[i]));
+                        out.writeByte(SweepProtocol.RESULT);
+                        out.writeLong(indexes[i]);
+                        result.writeTo(out);
+                        completed++;
+                    } catch (RuntimeException e) {
+                        out.writeByte(SweepProtocol.FAILED);
+                        out.writeLong(indexes[i]);
+                        out.writeUTF(String.valueOf(e.getMessage()));
+                    }
+                }
+                // Results are flushed together with the next request
+            }
+        } catch (IOException e) {
+            LOG.error("Lost connection to coordinator {}:{}", host, port, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<StockData> series(WorkUnit unit) {
+        String key = unit.getSeriesKey();
+        synchronized (seriesCache) {
+            List<StockData> data = seriesCache.get(key);
+            if (data != null) return data;
+        }
+        // Loaded outside the lock, two threads may occasionally load the same series
+        List<StockData> data = loader.load(unit.getSymbol(), unit.getStartDate(), unit.getEndDate());
+        synchronized (seriesCache) {
+            seriesCache.put(key, data);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,83 @@
+package com.backtest.engine.sweep;
+
+import com.backtest.strategy.StrategyParameters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One backtest of a sweep: a strategy with fixed parameters run on one symbol and date range.
+ */
+public final class WorkUnit {
+    private final String symbol;
+    private final String strategyName;
+    private final StrategyParameters parameters;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final double initialCashBalance;
+    private final String id;
+
+    public WorkUnit(String symbol, String strategyName, StrategyParameters parameters,
+                    LocalDate startDate, LocalDate endDate, double initialCashBalance) {
+        this.symbol = symbol;
+        this.strategyName = strategyName;
+        this.parameters = parameters;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.initialCashBalance = initialCashBalance;
+        this.id = symbol + "|" + strategyName + "|" + parameters + "|" + startDate + "|" + endDate + "|" + initialCashBalance;
+    }
+
+    public String getSymbol() {return symbol;}
+    public String getStrategyName() {return strategyName;}
+    public StrategyParameters getParameters() {return parameters;}
+    public LocalDate getStartDate() {return startDate;}
+    public LocalDate getEndDate() {return endDate;}
+    public double getInitialCashBalance() {return initialCashBalance;}
+
+    /**
+     * @return a stable key identifying this unit across runs, used by checkpoints
+     */
+    public String getId() {return id;}
+
+    /**
+     * @return the key of the price series this unit needs, shared by all units on the same data
+     */
+    public String getSeriesKey() {
+        return symbol + "|" + startDate + "|" + endDate;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(symbol);
+        out.writeUTF(strategyName);
+        out.writeInt(parameters.asMap().size());
+        for (Map.Entry<String, Double> entry : parameters.asMap().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+        out.writeLong(startDate.toEpochDay());
+        out.writeLong(endDate.toEpochDay());
+        out.writeDouble(initialCashBalance);
+    }
+
+    public static WorkUnit readFrom(DataInput in) throws IOException {
+        String symbol = in.readUTF();
+        String strategyName = in.readUTF();
+        int count = in.readInt();
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            values.put(in.readUTF(), in.readDouble());
+        }
+        return new WorkUnit(symbol, strategyName, StrategyParameters.of(values),
+                LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong()), in.readDouble());
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -0,0 +1,170 @@
+package com.backtest.engine.verify;
+
+import com.backtest.db.SymbolTable;
+import com.backtest.engine.sweep.WorkUnit;
+import com.backtest.strategy.RuleStrategyProvider;
+import com.backtest.strategy.Strategy;
+import com.backtest.strategy.StrategyParameters;
+import com.backtest.strategy.StrategyRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers the shared caches and strategy instances from many threads at once to surface data races. All threads
+ * are released together and then, until the time is up, repeatedly:
+ * <ul>
+ *     <li>look up the strategy of a random unit in a registry, which must always hand out the same instance for
+ *         the same configuration,</li>
+ *     <li>run it on the shared bars, which must give the serial reference result and trade journal bit for bit,</li>
+ *     <li>intern symbols in the {@link SymbolTable}, which must agree on every id across threads.</li>
+ * </ul>
+ * Meanwhile one more thread keeps re-registering a rule strategy with the same rule, evicting its cached
+ * instances under the others' feet. The test runs on a registry of its own with the default providers, so the
+ * churn doesn't touch the strategies of the rest of the process.
+ */
+public final class ContentionStress {
+    static final String RULE_NAME = "STRESS_RULE";
+    static final String RULE = "buy when close < sma(20); sell when close > sma(20)";
+    private static final int SYMBOLS = 256;
+
+    private final int threads;
+    private final long durationMillis;
+    private final long seed;
+
+    /**
+     * @param threads the threads running backtests, besides the one re-registering the rule
+     * @param durationMillis
+     * @param seed of each thread's random choices, so a failing sequence can be replayed
+     */
+    public ContentionStress(int threads, long durationMillis, long seed) {
+        this.threads = threads;
+        this.durationMillis = durationMillis;
+        this.seed = seed;
+    }
+
+    /**
+     * @param workload the units to pick from; a copy of every unit with the stress rule strategy is added
+     * @return the report, passed if no run or lookup disagreed with the reference
+     * @throws InterruptedException
+     */
+    public VerificationReport run(Workload workload) throws InterruptedException {
+        StrategyRegistry registry = new StrategyRegistry();
+        Set<String> names = new LinkedHashSet<>();
+        for (WorkUnit unit : workload.getUnits()) {
+            names.add(unit.getStrategyName().toUpperCase());
+        }
+        for (String name : names) {
+            registry.register(StrategyRegistry.getDefault().getProvider(name));
+        }
+        registry.register(new RuleStrategyProvider(RULE_NAME, RULE));
+
+        List<WorkUnit> units = new ArrayList<>(workload.getUnits());
+        for (WorkUnit unit : workload.getUnits()) {
+            units.add(new WorkUnit(unit.getSymbol(), RULE_NAME, StrategyParameters.of(Map.of()), unit.getStartDate(),
+                    unit.getEndDate(), unit.getInitialCashBalance()));
+        }
+        List<RunOutcome> reference = new ArrayList<>(units.size());
+        for (WorkUnit unit : units) {
+            reference.add(RunOutcome.run(() -> strategy(registry, unit), unit.getInitialCashBalance(), workload.getSeries(unit), false));
+        }
+        String[] symbols = new String[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            symbols[i] = "STRESS-" + seed + "-" + i;
+        }
+
+        VerificationReport report = new VerificationReport("Contention stress of " + units.size() + " units on "
+                + threads + " threads for " + durationMillis + " ms");
+        Map<String, Strategy> instances = new ConcurrentHashMap<>();
+        Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+        AtomicLong backtests = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + durationMillis * 1_000_000L;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(seed + t);
+            workers.add(new Thread(() -> {
+                await(start);
+                while (System.nanoTime() < deadline) {
+                    int i = random.nextInt(units.size());
+                    WorkUnit unit = units.get(i);
+                    checkInstance(report, registry, instances, unit);
+                    String difference = reference.get(i).compare(RunOutcome.run(() -> strategy(registry, unit),
+                            unit.getInitialCashBalance(), workload.getSeries(unit), random.nextBoolean()));
+                    if (difference == null) {
+                        report.passed();
+                    } else {
+                        report.failed(unit + ": " + difference);
+                    }
+                    backtests.incrementAndGet();
+                    checkSymbol(report, symbolIds, symbols[random.nextInt(SYMBOLS)]);
+                }
+            }, "stress-" + t));
+        }
+        workers.add(new Thread(() -> {
+            await(start);
+            while (System.nanoTime() < deadline) {
+                registry.register(new RuleStrategyProvider(RULE_NAME, RULE));
+                Thread.yield();
+            }
+        }, "stress-register"));
+
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return report;
+    }
+
+    private static Strategy strategy(StrategyRegistry registry, WorkUnit unit) {
+        return registry.getStrategy(unit.getStrategyName(), unit.getParameters());
+    }
+
+    /**
+     * Instances of strategies that are never re-registered must be the same object for everyone
+     */
+    private static void checkInstance(VerificationReport report, StrategyRegistry registry, Map<String, Strategy> instances, WorkUnit unit) {
+        if (RULE_NAME.equals(unit.getStrategyName())) {
+            return;
+        }
+        Strategy strategy;
+        try {
+            strategy = strategy(registry, unit);
+        } catch (IllegalArgumentException e) {
+            return; // Invalid units fail the same way in the reference, the run comparison covers them
+        }
+        Strategy first = instances.putIfAbsent(registry.getKey(unit.getStrategyName(), unit.getParameters()), strategy);
+        if (first == null || first == strategy) {
+            report.passed();
+        } else {
+            report.failed(unit + ": two instances of the same strategy");
+        }
+    }
+
+    private static void checkSymbol(VerificationReport report, Map<String, Integer> symbolIds, String symbol) {
+        int id = SymbolTable.intern(symbol);
+        Integer first = symbolIds.putIfAbsent(symbol, id);
+        if ((first == null || first == id) && symbol.equals(SymbolTable.name(id))) {
+            report.passed();
+        } else {
+            report.failed(symbol + ": id " + id + " vs " + first + ", name " + SymbolTable.name(id));
+        }
+    }
+
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
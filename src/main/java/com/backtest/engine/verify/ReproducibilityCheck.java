@@ -0,0 +1,98 @@
+package com.backtest.engine.verify;
+
+import com.backtest.engine.sweep.WorkUnit;
+import com.backtest.strategy.StrategyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that backtest results don't depend on thread scheduling. Every unit of a workload is run serially as the
+ * reference, on the list and on the streaming path of the engine, then again on a thread pool in several rounds,
+ * each submitting the units in a different shuffled order. All results and trade journals must equal the reference
+ * bit for bit. Strategies come from the shared registry, as in a sweep.
+ */
+public final class ReproducibilityCheck {
+    private final int threads;
+    private final int rounds;
+    private final long seed;
+
+    /**
+     * @param threads of the parallel runs
+     * @param rounds the parallel runs over the whole workload
+     * @param seed of the submission order shuffles, so a failing order can be replayed
+     */
+    public ReproducibilityCheck(int threads, int rounds, long seed) {
+        this.threads = threads;
+        this.rounds = rounds;
+        this.seed = seed;
+    }
+
+    /**
+     * @param workload
+     * @return the report, passed if every run matched the reference
+     * @throws InterruptedException
+     */
+    public VerificationReport run(Workload workload) throws InterruptedException {
+        VerificationReport report = new VerificationReport("Reproducibility of " + workload.getUnits().size()
+                + " units, " + rounds + " rounds on " + threads + " threads");
+        List<WorkUnit> units = workload.getUnits();
+        List<RunOutcome> reference = new ArrayList<>(units.size());
+        for (WorkUnit unit : units) {
+            RunOutcome outcome = run(workload, unit, false);
+            reference.add(outcome);
+            compare(report, unit, "stream", outcome, run(workload, unit, true));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                List<Integer> order = new ArrayList<>(units.size());
+                for (int i = 0; i < units.size(); i++) {
+                    order.add(i);
+                }
+                Collections.shuffle(order, new Random(seed + round));
+
+                List<Future<RunOutcome>> outcomes = new ArrayList<>(Collections.nCopies(units.size(), null));
+                for (int i : order) {
+                    WorkUnit unit = units.get(i);
+                    outcomes.set(i, executor.submit(() -> run(workload, unit, false)));
+                }
+                for (int i = 0; i < units.size(); i++) {
+                    compare(report, units.get(i), "parallel round " + round, reference.get(i), get(outcomes.get(i)));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    private static RunOutcome run(Workload workload, WorkUnit unit, boolean stream) {
+        return RunOutcome.run(() -> StrategyFactory.getStrategy(unit.getStrategyName(), unit.getParameters()),
+                unit.getInitialCashBalance(), workload.getSeries(unit), stream);
+    }
+
+    private static void compare(VerificationReport report, WorkUnit unit, String run, RunOutcome reference, RunOutcome outcome) {
+        String difference = reference.compare(outcome);
+        if (difference == null) {
+            report.passed();
+        } else {
+            report.failed(unit + " (" + run + "): " + difference);
+        }
+    }
+
+    private static RunOutcome get(Future<RunOutcome> outcome) throws InterruptedException {
+        try {
+            return outcome.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backtest failed outside the engine", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.backtest.engine.verify;
+
+import com.backtest.db.StockData;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.ExecutionEngine;
+import com.backtest.engine.TradeJournal;
+import com.backtest.strategy.Strategy;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Everything one backtest produced: its result and trade journal, or the error it failed with
+ */
+final class RunOutcome {
+    private final BacktestResult result;
+    private final TradeJournal journal;
+    private final String error;
+
+    private RunOutcome(BacktestResult result, TradeJournal journal, String error) {
+        this.result = result;
+        this.journal = journal;
+        this.error = error;
+    }
+
+    /**
+     * @param strategy looked up as part of the run, so a failed lookup is an outcome too
+     * @param initialCashBalance
+     * @param marketData
+     * @param stream whether to run bar by bar through a stream rather than on the list
+     * @return the outcome, also if the backtest threw
+     */
+    static RunOutcome run(Supplier<Strategy> strategy, double initialCashBalance, List<StockData> marketData, boolean stream) {
+        TradeJournal journal = new TradeJournal();
+        try {
+            ExecutionEngine engine = new ExecutionEngine(initialCashBalance, false, journal);
+            BacktestResult result = stream
+                    ? engine.runBackTest(strategy.get(), marketData.stream())
+                    : engine.runBackTest(strategy.get(), marketData);
+            return new RunOutcome(result, journal, null);
+        } catch (RuntimeException e) {
+            return new RunOutcome(null, journal, e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param other
+     * @return what differs from the other outcome, null if both are identical bit for bit
+     */
+    String compare(RunOutcome other) {
+        if (error != null || other.error != null) {
+            return error != null && error.equals(other.error) ? null : "error '" + error + "' vs '" + other.error + "'";
+        }
+        if (!sameBits(result.getInitialCashBalance(), other.result.getInitialCashBalance())
+                || !sameBits(result.getFinalCashBalance(), other.result.getFinalCashBalance())
+                || !sameBits(result.getSharesOwned(), other.result.getSharesOwned())
+                || !sameBits(result.getLastPrice(), other.result.getLastPrice())
+                || result.getTradeCount() != other.result.getTradeCount()) {
+            return "result " + result + " vs " + other.result;
+        }
+        int difference = journal.firstDifference(other.journal);
+        if (difference >= 0) {
+            return "execution " + difference + ": " + journal.describe(difference) + " vs " + other.journal.describe(difference);
+        }
+        return null;
+    }
+
+    private static boolean sameBits(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+}
@@ -0,0 +1,57 @@
+package com.backtest.engine.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a verification: how many comparisons were made and the first mismatches found. Safe to update from
+ * many threads.
+ */
+public final class VerificationReport {
+    private static final int MAX_REPORTED = 20;
+
+    private final String name;
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong mismatchCount = new AtomicLong();
+    private final List<String> mismatches = new ArrayList<>();
+
+    VerificationReport(String name) {
+        this.name = name;
+    }
+
+    void passed() {
+        checks.incrementAndGet();
+    }
+
+    void failed(String mismatch) {
+        checks.incrementAndGet();
+        mismatchCount.incrementAndGet();
+        synchronized (mismatches) {
+            if (mismatches.size() < MAX_REPORTED) {
+                mismatches.add(mismatch);
+            }
+        }
+    }
+
+    public long getChecks() {return checks.get();}
+    public long getMismatchCount() {return mismatchCount.get();}
+
+    public boolean isPassed() {
+        return mismatchCount.get() == 0;
+    }
+
+    /**
+     * @return the first mismatches found, at most {@value #MAX_REPORTED}
+     */
+    public List<String> getMismatches() {
+        synchronized (mismatches) {
+            return List.copyOf(mismatches);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + (isPassed() ? "passed" : "FAILED") + ", " + checks.get() + " checks, " + mismatchCount.get() + " mismatches";
+    }
+}
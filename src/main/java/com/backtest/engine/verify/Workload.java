@@ -0,0 +1,46 @@
+package com.backtest.engine.verify;
+
+import com.backtest.db.StockData;
+import com.backtest.engine.sweep.SweepRunner;
+import com.backtest.engine.sweep.WorkUnit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work units with their price data loaded up front, so every run of a verification sees the very same bars
+ * and no time is spent loading while threads race.
+ */
+public final class Workload {
+    private final List<WorkUnit> units;
+    private final Map<String, List<StockData>> series;
+
+    private Workload(List<WorkUnit> units, Map<String, List<StockData>> series) {
+        this.units = units;
+        this.series = series;
+    }
+
+    /**
+     * @param units
+     * @param loader
+     * @return the units with the data of each distinct series loaded once
+     */
+    public static Workload load(List<WorkUnit> units, SweepRunner.SeriesLoader loader) {
+        Map<String, List<StockData>> series = new HashMap<>();
+        for (WorkUnit unit : units) {
+            series.computeIfAbsent(unit.getSeriesKey(),
+                    key -> List.copyOf(loader.load(unit.getSymbol(), unit.getStartDate(), unit.getEndDate())));
+        }
+        return new Workload(List.copyOf(units), series);
+    }
+
+    public List<WorkUnit> getUnits() {return units;}
+
+    /**
+     * @return the bars of the unit, shared with all units on the same series
+     */
+    public List<StockData> getSeries(WorkUnit unit) {
+        return series.get(unit.getSeriesKey());
+    }
+}
@@ -0,0 +1,179 @@
+package com.backtest.io;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of bit fields, most significant bit first. Used for bit-packed integer columns and
+ * XOR-encoded doubles, see {@link #putXorDoubles} and {@link #getXorDoubles}.
+ */
+public final class BitBuffer {
+    private long[] words;
+    private long bitPosition;
+    private long bitLimit;
+
+    public BitBuffer(int capacityBits) {
+        this.words = new long[Math.max(1, (capacityBits + 63) >>> 6)];
+    }
+
+    /**
+     * @return a buffer reading bytes written by {@link #toByteArray()}
+     */
+    public static BitBuffer wrap(byte[] data, int offset, int length) {
+        BitBuffer buffer = new BitBuffer(length * 8);
+        long[] words = buffer.words;
+        for (int i = 0; i < length; i++) {
+            words[i >>> 3] |= (long) (data[offset + i] & 0xFF) << (56 - ((i & 7) << 3));
+        }
+        buffer.bitLimit = (long) length * 8;
+        return buffer;
+    }
+
+    /**
+     * @return the bytes written so far, the last one padded with zero bits
+     */
+    public byte[] toByteArray() {
+        int length = (int) ((bitPosition + 7) >>> 3);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return data;
+    }
+
+    public long getBitLength() {return bitPosition;}
+
+    public boolean hasRemaining() {return bitPosition < bitLimit;}
+
+    /**
+     * Write the low width bits of value
+     * @param value
+     * @param width 0 to 64
+     */
+    public void putBits(long value, int width) {
+        if (width == 0) {
+            return;
+        }
+        int word = (int) (bitPosition >>> 6);
+        if (word + 1 >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 2, words.length * 2));
+        }
+        if (width < 64) {
+            value &= (1L << width) - 1;
+        }
+        int used = (int) (bitPosition & 63);
+        int free = 64 - used;
+        if (width <= free) {
+            words[word] |= value << (free - width);
+        } else {
+            words[word] |= value >>> (width - free);
+            words[word + 1] |= value << (64 - (width - free));
+        }
+        bitPosition += width;
+    }
+
+    /**
+     * @param width 0 to 64
+     * @return the next width bits, unsigned
+     */
+    public long getBits(int width) {
+        if (width == 0) {
+            return 0;
+        }
+        int word = (int) (bitPosition >>> 6);
+        int used = (int) (bitPosition & 63);
+        long value = words[word] << used;
+        if (used + width > 64) {
+            value |= words[word + 1] >>> (64 - used);
+        }
+        bitPosition += width;
+        return width == 64 ? value : value >>> (64 - width);
+    }
+
+    /**
+     * @return the number of bits needed for the largest of the unsigned values
+     */
+    public static int width(long[] values, int from, int to) {
+        long any = 0;
+        for (int i = from; i < to; i++) {
+            any |= values[i];
+        }
+        return 64 - Long.numberOfLeadingZeros(any);
+    }
+
+    /**
+     * Pack values[from, to) with a common bit width, preceded by the width in 7 bits
+     */
+    public void putPacked(long[] values, int from, int to) {
+        int width = width(values, from, to);
+        putBits(width, 7);
+        for (int i = from; i < to; i++) {
+            putBits(values[i], width);
+        }
+    }
+
+    public void getPacked(long[] target, int offset, int count) {
+        int width = (int) getBits(7);
+        for (int i = 0; i < count; i++) {
+            target[offset + i] = getBits(width);
+        }
+    }
+
+    /**
+     * Write doubles with the XOR scheme of Facebook's Gorilla: the first value in full, then per value a 0 bit if
+     * it equals the previous one, otherwise the XOR with the previous value's bits, either inside the previous
+     * window of meaningful bits ('10') or with a new window given by 5 bits of leading zeros and 6 bits of length ('11').
+     * Slowly moving prices share sign, exponent and high mantissa bits, so most values take far fewer than 64 bits.
+     */
+    public void putXorDoubles(double[] values, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        long previous = Double.doubleToRawLongBits(values[from]);
+        putBits(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                putBits(0, 1);
+                continue;
+            }
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                putBits(0b10, 2);
+                putBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int length = 64 - leading - trailing;
+                putBits(0b11, 2);
+                putBits(leading, 5);
+                putBits(length - 1, 6);
+                putBits(xor >>> trailing, length);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    public void getXorDoubles(double[] target, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        long previous = getBits(64);
+        target[offset] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (getBits(1) != 0) {
+                if (getBits(1) != 0) {
+                    leading = (int) getBits(5);
+                    trailing = 64 - leading - ((int) getBits(6) + 1);
+                }
+                previous ^= getBits(64 - leading - trailing) << trailing;
+            }
+            target[offset + i] = Double.longBitsToDouble(previous);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.backtest.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for encoding and decoding one column: unsigned and zigzag varints, strings, and doubles
+ * stored byte-plane by byte-plane (all lowest bytes first, then all second bytes, ...). Splitting the planes puts
+ * the slowly changing sign, exponent and high mantissa bytes of a price column next to each other, which makes
+ * the column far more compressible than the plain 8-byte layout.
+ */
+public final class ColumnBuffer {
+    private byte[] data;
+    private int position;
+    private int limit;
+
+    public ColumnBuffer(int capacity) {
+        this.data = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * @return a buffer reading the first length bytes of data
+     */
+    public static ColumnBuffer wrap(byte[] data, int length) {
+        ColumnBuffer buffer = new ColumnBuffer(0);
+        buffer.data = data;
+        buffer.limit = length;
+        return buffer;
+    }
+
+    public byte[] array() {return data;}
+
+    /**
+     * @return the bytes written so far
+     */
+    public int length() {return position;}
+
+    public boolean hasRemaining() {return position < limit;}
+
+    public void clear() {
+        position = 0;
+        limit = 0;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > data.length) {
+            data = Arrays.copyOf(data, Math.max(position + bytes, data.length * 2));
+        }
+    }
+
+    public void putByte(int value) {
+        ensure(1);
+        data[position++] = (byte) value;
+    }
+
+    public int getByte() {
+        return data[position++];
+    }
+
+    /**
+     * Write a value as unsigned LEB128, 7 bits per byte, small values take one byte
+     */
+    public void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+    }
+
+    public long getVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Write a signed value zigzag encoded, so small negative values also take few bytes
+     */
+    public void putSignedVarLong(long value) {
+        putVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public long getSignedVarLong() {
+        long value = getVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, data, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public String getString() {
+        int length = (int) getVarLong();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Write a byte array preceded by its length
+     */
+    public void putBytes(byte[] bytes) {
+        putVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, data, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public byte[] getBytes() {
+        int length = (int) getVarLong();
+        byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    /**
+     * Write values[from, to) as 8 byte planes
+     */
+    public void putDoubles(double[] values, int from, int to) {
+        int count = to - from;
+        ensure(count * 8);
+        for (int i = 0; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[from + i]);
+            for (int plane = 0; plane < 8; plane++) {
+                data[position + plane * count + i] = (byte) (bits >>> (plane * 8));
+            }
+        }
+        position += count * 8;
+    }
+
+    /**
+     * Read count values written by {@link #putDoubles} into target[offset, offset + count)
+     */
+    public void getDoubles(double[] target, int offset, int count) {
+        long[] bits = new long[count];
+        for (int plane = 0; plane < 8; plane++) {
+            int base = position + plane * count;
+            int shift = plane * 8;
+            for (int i = 0; i < count; i++) {
+                bits[i] |= (long) (data[base + i] & 0xFF) << shift;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            target[offset + i] = Double.longBitsToDouble(bits[i]);
+        }
+        position += count * 8;
+    }
+}
@@ -0,0 +1,94 @@
+package com.backtest.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Layout shared by the columnar price and result files:
+ * <pre>
+ *   header:     int magic "BTCF", byte version, byte schema
+ *   row group:  int rowCount, short columnCount, columnCount x (int rawLength, int compressedLength, deflated bytes)
+ *   end:        int 0
+ * </pre>
+ * The content of each column is defined by the schema, see {@link PriceFileWriter} and {@link ResultFileWriter}.
+ */
+final class ColumnarFile {
+    static final int MAGIC = 0x42544346;
+    static final byte VERSION = 1;
+    static final byte PRICES = 1;
+    static final byte RESULTS = 2;
+    // Rows a writer collects before it writes a row group
+    static final int ROW_GROUP_ROWS = 1 << 20;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private ColumnarFile() {
+    }
+
+    static void writeHeader(DataOutputStream out, byte schema) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(schema);
+    }
+
+    static void readHeader(DataInputStream in, byte schema) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a columnar data file");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar file version " + version);
+        }
+        int actual = in.readByte();
+        if (actual != schema) {
+            throw new IOException("Expected a " + name(schema) + " file but found " + name(actual));
+        }
+    }
+
+    static void writeColumn(DataOutputStream out, ColumnBuffer column, Deflater deflater) throws IOException {
+        deflater.reset();
+        deflater.setInput(column.array(), 0, column.length());
+        deflater.finish();
+        byte[] compressed = new byte[column.length() / 2 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(column.length());
+        out.writeInt(length);
+        out.write(compressed, 0, length);
+    }
+
+    static ColumnBuffer readColumn(DataInputStream in, Inflater inflater) throws IOException {
+        int rawLength = in.readInt();
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < rawLength) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated column");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column", e);
+        }
+        return ColumnBuffer.wrap(raw, rawLength);
+    }
+
+    private static String name(int schema) {
+        return schema == PRICES ? "price" : schema == RESULTS ? "result" : "unknown (" + schema + ")";
+    }
+}
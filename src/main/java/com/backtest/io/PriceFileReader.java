@@ -0,0 +1,123 @@
+package com.backtest.io;
+
+import com.backtest.db.PriceSeries;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by {@link PriceFileWriter} one row group at a time. Each column is inflated once and
+ * decoded in a tight loop straight into the arrays of the {@link PriceSeries}, without a per-bar object.
+ */
+public class PriceFileReader implements Closeable {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private boolean finished;
+
+    public PriceFileReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), ColumnarFile.BUFFER_SIZE));
+        try {
+            ColumnarFile.readHeader(in, ColumnarFile.PRICES);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the series of the next row group, null at the end of the file
+     * @throws IOException
+     */
+    public List<PriceSeries> nextRowGroup() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int rows = in.readInt();
+        if (rows == 0) {
+            finished = true;
+            return null;
+        }
+        int columns = in.readShort();
+        if (columns != PriceFileWriter.COLUMNS) {
+            throw new IOException("Expected " + PriceFileWriter.COLUMNS + " price columns but found " + columns);
+        }
+        ColumnBuffer symbolColumn = ColumnarFile.readColumn(in, inflater);
+        String[] dictionary = new String[(int) symbolColumn.getVarLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = symbolColumn.getString();
+        }
+        ColumnBuffer runs = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer dates = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer open = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer high = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer low = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer close = ColumnarFile.readColumn(in, inflater);
+        ColumnBuffer volumes = ColumnarFile.readColumn(in, inflater);
+
+        List<PriceSeries> group = new ArrayList<>();
+        long previousDay = 0;
+        long previousVolume = 0;
+        int read = 0;
+        while (runs.hasRemaining()) {
+            String symbol = dictionary[(int) runs.getVarLong()];
+            int size = (int) runs.getVarLong();
+            int[] epochDays = new int[size];
+            long[] volume = new long[size];
+            for (int i = 0; i < size; i++) {
+                previousDay += dates.getSignedVarLong();
+                epochDays[i] = (int) previousDay;
+                previousVolume += volumes.getSignedVarLong();
+                volume[i] = previousVolume;
+            }
+            double[] openValues = new double[size];
+            double[] highValues = new double[size];
+            double[] lowValues = new double[size];
+            double[] closeValues = new double[size];
+            open.getDoubles(openValues, 0, size);
+            high.getDoubles(highValues, 0, size);
+            low.getDoubles(lowValues, 0, size);
+            close.getDoubles(closeValues, 0, size);
+            group.add(new PriceSeries(symbol, epochDays, openValues, highValues, lowValues, closeValues, volume));
+            read += size;
+        }
+        if (read != rows) {
+            throw new IOException("Row group declares " + rows + " rows but holds " + read);
+        }
+        return group;
+    }
+
+    /**
+     * Read a whole file
+     * @param file
+     * @return the series by symbol, in file order
+     * @throws IOException
+     */
+    public static Map<String, PriceSeries> readAll(Path file) throws IOException {
+        Map<String, PriceSeries> all = new LinkedHashMap<>();
+        try (PriceFileReader reader = new PriceFileReader(file)) {
+            List<PriceSeries> group;
+            while ((group = reader.nextRowGroup()) != null) {
+                for (PriceSeries series : group) {
+                    all.put(series.getSymbol(), series);
+                }
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (in) {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.backtest.io;
+
+import com.backtest.db.PriceSeries;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes price series to a columnar file. Series are collected into row groups of about a million bars,
+ * a series is never split between row groups. Columns of a row group:
+ * <ol>
+ *   <li>symbol dictionary: count, then the symbols</li>
+ *   <li>symbol runs: (dictionary index, bar count) per series</li>
+ *   <li>dates: epoch day deltas to the previous bar, zigzag varints</li>
+ *   <li>open, high, low, close: doubles in byte planes</li>
+ *   <li>volume: deltas to the previous bar, zigzag varints</li>
+ * </ol>
+ * Every column is deflated. Read with {@link PriceFileReader}.
+ */
+public class PriceFileWriter implements Closeable {
+    static final int COLUMNS = 8;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final List<PriceSeries> pending = new ArrayList<>();
+    private int pendingRows;
+    private long rowsWritten;
+
+    public PriceFileWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), ColumnarFile.BUFFER_SIZE));
+        ColumnarFile.writeHeader(out, ColumnarFile.PRICES);
+    }
+
+    /**
+     * @param series
+     * @throws IOException
+     */
+    public void append(PriceSeries series) throws IOException {
+        if (pendingRows > 0 && pendingRows + series.size() > ColumnarFile.ROW_GROUP_ROWS) {
+            flush();
+        }
+        pending.add(series);
+        pendingRows += series.size();
+    }
+
+    public long getRowsWritten() {return rowsWritten + pendingRows;}
+
+    private void flush() throws IOException {
+        if (pendingRows == 0) {
+            return;
+        }
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (PriceSeries series : pending) {
+            dictionary.putIfAbsent(series.getSymbol(), dictionary.size());
+        }
+        ColumnBuffer symbols = new ColumnBuffer(dictionary.size() * 8);
+        symbols.putVarLong(dictionary.size());
+        for (String symbol : dictionary.keySet()) {
+            symbols.putString(symbol);
+        }
+        ColumnBuffer runs = new ColumnBuffer(pending.size() * 4);
+        ColumnBuffer dates = new ColumnBuffer(pendingRows * 2);
+        ColumnBuffer volumes = new ColumnBuffer(pendingRows * 4);
+        ColumnBuffer[] prices = new ColumnBuffer[4];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = new ColumnBuffer(pendingRows * 8);
+        }
+
+        long previousDay = 0;
+        long previousVolume = 0;
+        for (PriceSeries series : pending) {
+            runs.putVarLong(dictionary.get(series.getSymbol()));
+            runs.putVarLong(series.size());
+            int[] epochDays = series.getEpochDays();
+            long[] volume = series.getVolume();
+            for (int i = 0; i < series.size(); i++) {
+                dates.putSignedVarLong(epochDays[i] - previousDay);
+                previousDay = epochDays[i];
+                volumes.putSignedVarLong(volume[i] - previousVolume);
+                previousVolume = volume[i];
+            }
+            prices[0].putDoubles(series.getOpen(), 0, series.size());
+            prices[1].putDoubles(series.getHigh(), 0, series.size());
+            prices[2].putDoubles(series.getLow(), 0, series.size());
+            prices[3].putDoubles(series.getClose(), 0, series.size());
+        }
+
+        out.writeInt(pendingRows);
+        out.writeShort(COLUMNS);
+        ColumnarFile.writeColumn(out, symbols, deflater);
+        ColumnarFile.writeColumn(out, runs, deflater);
+        ColumnarFile.writeColumn(out, dates, deflater);
+        for (ColumnBuffer column : prices) {
+            ColumnarFile.writeColumn(out, column, deflater);
+        }
+        ColumnarFile.writeColumn(out, volumes, deflater);
+        rowsWritten += pendingRows;
+        pending.clear();
+        pendingRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            flush();
+            out.writeInt(0);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.backtest.io;
+
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.sweep.ResultSink;
+import com.backtest.engine.sweep.WorkUnit;
+import com.backtest.strategy.StrategyParameters;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by {@link ResultFileWriter}.
+ */
+public class ResultFileReader {
+
+    private ResultFileReader() {
+    }
+
+    /**
+     * Hand every stored result to the sink, in file order
+     * @param file
+     * @param sink
+     * @return the number of results read
+     * @throws IOException
+     */
+    public static long forEach(Path file, ResultSink sink) throws IOException {
+        Inflater inflater = new Inflater();
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), ColumnarFile.BUFFER_SIZE))) {
+            ColumnarFile.readHeader(in, ColumnarFile.RESULTS);
+            int rows;
+            while ((rows = in.readInt()) != 0) {
+                int columns = in.readShort();
+                if (columns != ResultFileWriter.COLUMNS) {
+                    throw new IOException("Expected " + ResultFileWriter.COLUMNS + " result columns but found " + columns);
+                }
+                ColumnBuffer strings = ColumnarFile.readColumn(in, inflater);
+                String[] dictionary = new String[(int) strings.getVarLong()];
+                StrategyParameters[] parameters = new StrategyParameters[dictionary.length];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = strings.getString();
+                }
+                ColumnBuffer keys = ColumnarFile.readColumn(in, inflater);
+                ColumnBuffer startDays = ColumnarFile.readColumn(in, inflater);
+                ColumnBuffer endDays = ColumnarFile.readColumn(in, inflater);
+                double[][] values = new double[4][rows];
+                for (double[] column : values) {
+                    ColumnarFile.readColumn(in, inflater).getDoubles(column, 0, rows);
+                }
+                ColumnBuffer trades = ColumnarFile.readColumn(in, inflater);
+
+                long startDay = 0;
+                long endDay = 0;
+                for (int i = 0; i < rows; i++) {
+                    String symbol = dictionary[(int) keys.getVarLong()];
+                    String strategy = dictionary[(int) keys.getVarLong()];
+                    int parameterIndex = (int) keys.getVarLong();
+                    if (parameters[parameterIndex] == null) {
+                        parameters[parameterIndex] = StrategyParameters.parse(dictionary[parameterIndex]);
+                    }
+                    startDay += startDays.getSignedVarLong();
+                    endDay += endDays.getSignedVarLong();
+                    WorkUnit unit = new WorkUnit(symbol, strategy, parameters[parameterIndex],
+                            LocalDate.ofEpochDay(startDay), LocalDate.ofEpochDay(endDay), values[0][i]);
+                    sink.accept(unit, new BacktestResult(values[0][i], values[1][i], values[2][i], values[3][i],
+                            (int) trades.getVarLong()));
+                }
+                count += rows;
+            }
+        } finally {
+            inflater.end();
+        }
+        return count;
+    }
+}
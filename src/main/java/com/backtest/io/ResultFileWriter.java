@@ -0,0 +1,122 @@
+package com.backtest.io;
+
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.sweep.ResultSink;
+import com.backtest.engine.sweep.WorkUnit;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes sweep results to a columnar file, as a {@link ResultSink} that can be called from several threads.
+ * Columns of a row group:
+ * <ol>
+ *   <li>dictionary of the symbols, strategy names and parameter sets of the group</li>
+ *   <li>keys: dictionary indexes of symbol, strategy and parameters per row</li>
+ *   <li>start and end dates: epoch day deltas to the previous row, zigzag varints</li>
+ *   <li>initial cash, final cash, shares owned, last price: doubles in byte planes</li>
+ *   <li>trade count: varints</li>
+ * </ol>
+ * Every column is deflated. Read with {@link ResultFileReader}.
+ */
+public class ResultFileWriter implements ResultSink, Closeable {
+    static final int COLUMNS = 9;
+    static final int ROW_GROUP_ROWS = 1 << 16;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final WorkUnit[] units = new WorkUnit[ROW_GROUP_ROWS];
+    private final double[][] values = new double[4][ROW_GROUP_ROWS];
+    private final int[] trades = new int[ROW_GROUP_ROWS];
+    private int pendingRows;
+    private long rowsWritten;
+
+    public ResultFileWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), ColumnarFile.BUFFER_SIZE));
+        ColumnarFile.writeHeader(out, ColumnarFile.RESULTS);
+    }
+
+    @Override
+    public synchronized void accept(WorkUnit unit, BacktestResult result) {
+        units[pendingRows] = unit;
+        values[0][pendingRows] = result.getInitialCashBalance();
+        values[1][pendingRows] = result.getFinalCashBalance();
+        values[2][pendingRows] = result.getSharesOwned();
+        values[3][pendingRows] = result.getLastPrice();
+        trades[pendingRows] = result.getTradeCount();
+        pendingRows++;
+        if (pendingRows == ROW_GROUP_ROWS) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public synchronized long getRowsWritten() {return rowsWritten + pendingRows;}
+
+    private void flush() throws IOException {
+        if (pendingRows == 0) {
+            return;
+        }
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        ColumnBuffer keys = new ColumnBuffer(pendingRows * 3);
+        ColumnBuffer startDays = new ColumnBuffer(pendingRows * 2);
+        ColumnBuffer endDays = new ColumnBuffer(pendingRows * 2);
+        ColumnBuffer tradeCounts = new ColumnBuffer(pendingRows * 2);
+        long previousStart = 0;
+        long previousEnd = 0;
+        for (int i = 0; i < pendingRows; i++) {
+            WorkUnit unit = units[i];
+            keys.putVarLong(dictionary.computeIfAbsent(unit.getSymbol(), key -> dictionary.size()));
+            keys.putVarLong(dictionary.computeIfAbsent(unit.getStrategyName(), key -> dictionary.size()));
+            keys.putVarLong(dictionary.computeIfAbsent(unit.getParameters().toString(), key -> dictionary.size()));
+            startDays.putSignedVarLong(unit.getStartDate().toEpochDay() - previousStart);
+            previousStart = unit.getStartDate().toEpochDay();
+            endDays.putSignedVarLong(unit.getEndDate().toEpochDay() - previousEnd);
+            previousEnd = unit.getEndDate().toEpochDay();
+            tradeCounts.putVarLong(trades[i]);
+        }
+        ColumnBuffer strings = new ColumnBuffer(dictionary.size() * 16);
+        strings.putVarLong(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            strings.putString(value);
+        }
+
+        out.writeInt(pendingRows);
+        out.writeShort(COLUMNS);
+        ColumnarFile.writeColumn(out, strings, deflater);
+        ColumnarFile.writeColumn(out, keys, deflater);
+        ColumnarFile.writeColumn(out, startDays, deflater);
+        ColumnarFile.writeColumn(out, endDays, deflater);
+        for (double[] column : values) {
+            ColumnBuffer buffer = new ColumnBuffer(pendingRows * 8);
+            buffer.putDoubles(column, 0, pendingRows);
+            ColumnarFile.writeColumn(out, buffer, deflater);
+        }
+        ColumnarFile.writeColumn(out, tradeCounts, deflater);
+        rowsWritten += pendingRows;
+        Arrays.fill(units, 0, pendingRows, null);
+        pendingRows = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (out) {
+            flush();
+            out.writeInt(0);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.backtest.live;
+
+import com.backtest.db.StockData;
+import com.backtest.db.SymbolTable;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.ExecutionEngine;
+import com.backtest.strategy.SignalGenerator;
+import com.backtest.strategy.Strategy;
+import com.backtest.strategy.TradeSignal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a strategy forward on a bar feed as the bars arrive, trading on paper.
+ * <p>
+ * The calling thread reads the feed and keeps one incremental {@link SignalGenerator} per symbol, so every bar is
+ * decided in constant time. The generators come from {@link Strategy#newLiveSignalGenerator()}, so a bar is decided
+ * and filled at its close as soon as it arrives. A backtest's moving average generators decide a bar only when the
+ * next one arrives; on a feed that one-bar lag would delay every fill by a bar interval.
+ * <p>
+ * Signals go through a {@link SignalRingBuffer} to an execution thread that owns one {@link ExecutionEngine} per
+ * symbol. Tick-to-decision latency (bar received until the strategy has decided) and decision-to-execution latency
+ * (signal published until executed) are recorded in histograms.
+ */
+public class PaperTradingRuntime {
+    private static final Logger LOG = LoggerFactory.getLogger(PaperTradingRuntime.class);
+
+    private final Strategy strategy;
+    private final double cashPerSymbol;
+    private final int ringCapacity;
+    private final LatencyHistogram decisionLatency = new LatencyHistogram();
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
+
+    // Feed thread only, indexed by symbol id
+    private SignalGenerator[] generators = new SignalGenerator[16];
+    // Execution thread only, indexed by symbol id
+    private ExecutionEngine[] engines = new ExecutionEngine[16];
+
+    /**
+     * @param strategy
+     * @param cashPerSymbol the starting cash of the paper portfolio of each symbol
+     * @param ringCapacity the number of signals that can be in flight, a power of two
+     */
+    public PaperTradingRuntime(Strategy strategy, double cashPerSymbol, int ringCapacity) {
+        this.strategy = strategy;
+        this.cashPerSymbol = cashPerSymbol;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Trade the feed until it ends. Can only be called once.
+     * @param feed bars in date order, several symbols may be interleaved
+     * @param barIntervalNanos the pause between bars to pace a replay like a live feed, 0 to replay as fast as possible
+     * @return the paper portfolio of each symbol
+     * @throws InterruptedException if interrupted while waiting for the execution thread
+     */
+    public Map<String, BacktestResult> run(Iterator<StockData> feed, long barIntervalNanos) throws InterruptedException {
+        SignalRingBuffer ring = new SignalRingBuffer(ringCapacity);
+        Thread executor = new Thread(() -> ring.consumeUntilClosed(this::execute), "paper-trading-execution");
+        executor.start();
+
+        long bars = 0;
+        long start = System.nanoTime();
+        long nextRelease = start;
+        try {
+            while (feed.hasNext()) {
+                if (barIntervalNanos > 0) {
+                    nextRelease += barIntervalNanos;
+                    waitUntil(nextRelease);
+                }
+                StockData bar = feed.next();
+                long tick = System.nanoTime();
+                TradeSignal signal = generator(bar.getSymbolId()).onBar(bar);
+                long decided = System.nanoTime();
+                decisionLatency.record(decided - tick);
+                if (signal != null) {
+                    SignalRingBuffer.Slot slot = ring.claim();
+                    slot.symbolId = bar.getSymbolId();
+                    slot.signal = signal;
+                    slot.tickNanos = tick;
+                    slot.decisionNanos = decided;
+                    ring.publish();
+                }
+                bars++;
+            }
+        } finally {
+            ring.close();
+            executor.join();
+        }
+
+        LOG.info("Paper traded {} bars in {} ms", bars, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Tick-to-decision latency: {}", decisionLatency);
+        LOG.info("Decision-to-execution latency: {}", executionLatency);
+        if (ring.getFailedSlots() > 0) {
+            LOG.error("{} signals failed to execute", ring.getFailedSlots(), ring.getFirstFailure());
+        }
+
+        Map<String, BacktestResult> results = new LinkedHashMap<>();
+        for (int symbolId = 0; symbolId < engines.length; symbolId++) {
+            if (engines[symbolId] != null) {
+                results.put(SymbolTable.name(symbolId), engines[symbolId].getResult());
+            }
+        }
+        return results;
+    }
+
+    public LatencyHistogram getDecisionLatency() {return decisionLatency;}
+    public LatencyHistogram getExecutionLatency() {return executionLatency;}
+
+    private SignalGenerator generator(int symbolId) {
+        if (symbolId >= generators.length) {
+            generators = Arrays.copyOf(generators, Math.max(symbolId + 1, generators.length * 2));
+        }
+        SignalGenerator generator = generators[symbolId];
+        if (generator == null) {
+            generator = strategy.newLiveSignalGenerator();
+            generators[symbolId] = generator;
+        }
+        return generator;
+    }
+
+    private void execute(SignalRingBuffer.Slot slot) {
+        int symbolId = slot.symbolId;
+        if (symbolId >= engines.length) {
+            engines = Arrays.copyOf(engines, Math.max(symbolId + 1, engines.length * 2));
+        }
+        ExecutionEngine engine = engines[symbolId];
+        if (engine == null) {
+            engine = new ExecutionEngine(cashPerSymbol, false);
+            engines[symbolId] = engine;
+        }
+        engine.onSignal(slot.signal);
+        executionLatency.record(System.nanoTime() - slot.decisionNanos);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Executed {} {} ({} us after the bar arrived)", SymbolTable.name(symbolId),
+                    slot.signal, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - slot.tickNanos));
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
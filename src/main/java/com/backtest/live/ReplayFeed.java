@@ -0,0 +1,112 @@
+package com.backtest.live;
+
+import com.backtest.db.StockData;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Bar feed read from a replay file, standing in for a live market data source. The file is CSV with the header
+ * {@code symbol,date,open,high,low,close,volume}, one bar per line, bars of several symbols interleaved in date order.
+ */
+public class ReplayFeed implements Iterator<StockData>, Closeable {
+    public static final String HEADER = "symbol,date,open,high,low,close,volume";
+
+    private final BufferedReader reader;
+    private final Path file;
+    private StockData next;
+    private int lineNumber;
+
+    /**
+     * @param file
+     * @throws IOException if the file cannot be opened or has no header
+     */
+    public ReplayFeed(Path file) throws IOException {
+        this.file = file;
+        this.reader = Files.newBufferedReader(file);
+        String header = reader.readLine();
+        lineNumber = 1;
+        if (header == null || !header.trim().equalsIgnoreCase(HEADER)) {
+            reader.close();
+            throw new IOException("Replay file " + file + " must start with the header " + HEADER);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readBar();
+        }
+        return next != null;
+    }
+
+    @Override
+    public StockData next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        StockData bar = next;
+        next = null;
+        return bar;
+    }
+
+    private StockData readBar() {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) return null;
+            } while (line.isBlank());
+            return parse(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StockData parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 7) {
+            throw new IllegalStateException("Invalid bar at " + file + ":" + lineNumber + ": " + line);
+        }
+        try {
+            return StockData.ofEpochDay(fields[0].trim(), (int) LocalDate.parse(fields[1].trim()).toEpochDay(),
+                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                    Double.parseDouble(fields[5]), Long.parseLong(fields[6].trim()));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Invalid bar at " + file + ":" + lineNumber + ": " + line, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Write bars as a replay file, e.g. to record a period from the database
+     * @param file
+     * @param bars in date order
+     * @throws IOException
+     */
+    public static void write(Path file, List<StockData> bars) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (StockData bar : bars) {
+                writer.write(bar.getSymbol() + "," + bar.getTradeDate() + "," + bar.getOpen() + "," + bar.getHigh() + ","
+                        + bar.getLow() + "," + bar.getClose() + "," + bar.getVolume());
+                writer.newLine();
+            }
+        }
+    }
+}
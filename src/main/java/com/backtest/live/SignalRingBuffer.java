@@ -0,0 +1,169 @@
+package com.backtest.live;
+
+import com.backtest.strategy.TradeSignal;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer, single-consumer ring of preallocated slots between the strategy thread and the execution thread,
+ * in the style of the LMAX disruptor: the producer fills a claimed slot and publishes it by advancing its cursor,
+ * the consumer processes every slot up to that cursor in one batch and then advances its own cursor to free them.
+ * No locks and no allocation on the signal path.
+ * <p>
+ * A handler failing on one slot doesn't stop the consumer, the failure is counted and the slot skipped. Should the
+ * consumer thread die anyway, the producer fails instead of waiting forever for a full ring to drain.
+ */
+final class SignalRingBuffer {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final Sequence published = new Sequence(-1);
+    private final Sequence consumed = new Sequence(-1);
+    private volatile boolean closed;
+    private volatile Throwable consumerFailure;
+
+    // Consumer side only, read by others after the consumer thread ended
+    private long failedSlots;
+    private RuntimeException firstFailure;
+
+    // Producer side only
+    private long next;
+    private long cachedConsumed = -1;
+
+    /**
+     * @param capacity the number of slots, a power of two
+     */
+    SignalRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Claim the next slot, waiting for the consumer while the ring is full. Producer thread only.
+     * @throws IllegalStateException if the consumer thread died
+     */
+    Slot claim() {
+        int idle = 0;
+        while (next - cachedConsumed > slots.length) {
+            cachedConsumed = consumed.get();
+            if (next - cachedConsumed > slots.length) {
+                if (consumerFailure != null) {
+                    throw new IllegalStateException("The consumer of the signal ring died", consumerFailure);
+                }
+                idle = idle(idle);
+            }
+        }
+        return slots[(int) (next & mask)];
+    }
+
+    /**
+     * Make the slot returned by the last {@link #claim()} visible to the consumer. Producer thread only.
+     */
+    void publish() {
+        published.set(next++);
+    }
+
+    /**
+     * Signal that nothing more will be published. Producer thread only.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Hand all published slots to the handler. Consumer thread only.
+     * @return the number of slots processed
+     */
+    int drain(Handler handler) {
+        long from = consumed.get() + 1;
+        long to = published.get();
+        for (long sequence = from; sequence <= to; sequence++) {
+            Slot slot = slots[(int) (sequence & mask)];
+            try {
+                handler.onSignal(slot);
+            } catch (RuntimeException e) {
+                if (failedSlots++ == 0) {
+                    firstFailure = e;
+                }
+            }
+            slot.signal = null;
+        }
+        if (to >= from) {
+            consumed.set(to);
+        }
+        return (int) (to - from + 1);
+    }
+
+    /**
+     * Run the handler on the calling thread until the producer has closed the ring and every slot is processed
+     */
+    void consumeUntilClosed(Handler handler) {
+        int idle = 0;
+        try {
+            while (true) {
+                boolean wasClosed = closed;
+                if (drain(handler) > 0) {
+                    idle = 0;
+                } else if (wasClosed) {
+                    return;
+                } else {
+                    idle = idle(idle);
+                }
+            }
+        } catch (Throwable t) {
+            consumerFailure = t;
+            throw t;
+        }
+    }
+
+    /**
+     * @return the slots whose handler threw, read once the consumer has finished
+     */
+    long getFailedSlots() {
+        return failedSlots;
+    }
+
+    /**
+     * @return the exception of the first slot whose handler threw, null if none did
+     */
+    RuntimeException getFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * Back off from busy spinning to yielding to parking the longer a wait lasts
+     */
+    private static int idle(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * A preallocated event, reused once the consumer has moved past it
+     */
+    static final class Slot {
+        int symbolId;
+        TradeSignal signal;
+        long tickNanos;
+        long decisionNanos;
+    }
+
+    interface Handler {
+        void onSignal(Slot slot);
+    }
+}
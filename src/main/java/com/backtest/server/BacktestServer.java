@@ -0,0 +1,385 @@
+package com.backtest.server;
+
+import com.backtest.db.PriceSeries;
+import com.backtest.engine.BacktestResult;
+import com.backtest.engine.ExecutionEngine;
+import com.backtest.strategy.ParameterSpec;
+import com.backtest.strategy.Strategy;
+import com.backtest.strategy.StrategyFactory;
+import com.backtest.strategy.StrategyParameters;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP server running one backtest per request against the price data shared in a {@link SeriesCache}.
+ * <pre>
+ *   POST   /backtest        {"symbol":"AAPL","strategy":"SMA","parameters":{"observationWindow":20},
+ *                            "from":"2024-01-02","to":"2024-11-20","cash":10000,"id":"optional","timeoutMillis":5000}
+ *   DELETE /backtest/{id}   cancel a running request that was given an id
+ *   GET    /strategies      the strategies with their parameter specs
+ *   GET    /status          request counters
+ * </pre>
+ * Every request is handled on its own thread, a virtual thread on Java 21 and later, and runs the simulation
+ * inline. At most maxConcurrent simulations run at a time; a request that cannot be admitted within the admission
+ * wait is rejected with 503 rather than queued, so latency stays bounded under overload. A watchdog interrupts
+ * simulations that run past their timeout (504), DELETE interrupts them on demand (409); the engine checks for
+ * interruption while it runs.
+ */
+public class BacktestServer {
+    private static final Logger LOG = LoggerFactory.getLogger(BacktestServer.class);
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final SeriesCache seriesCache;
+    private final int maxConcurrent;
+    private final Semaphore admission;
+    private final long admissionWaitMillis;
+    private final long maxTimeoutMillis;
+    private final Map<String, Running> running = new ConcurrentHashMap<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * @param port
+     * @param maxConcurrent the simulations running at the same time at most
+     * @param admissionWaitMillis how long a request waits for a free slot before it is rejected
+     * @param maxTimeoutMillis the timeout of a request, requests can ask for a shorter one
+     * @param seriesCache
+     * @throws IOException if the port cannot be bound
+     */
+    BacktestServer(int port, int maxConcurrent, long admissionWaitMillis, long maxTimeoutMillis,
+                   SeriesCache seriesCache) throws IOException {
+        this.seriesCache = seriesCache;
+        this.maxConcurrent = maxConcurrent;
+        this.admission = new Semaphore(maxConcurrent);
+        this.admissionWaitMillis = admissionWaitMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.executor = newRequestExecutor(maxConcurrent);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backtest-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/backtest", this::handleBacktest);
+        server.createContext("/strategies", this::handleStrategies);
+        server.createContext("/status", this::handleStatus);
+    }
+
+    /**
+     * @param port
+     * @param maxConcurrent the simulations running at the same time at most
+     * @param admissionWaitMillis how long a request waits for a free slot before it is rejected
+     * @param maxTimeoutMillis the timeout of a request, requests can ask for a shorter one
+     * @param cacheSymbols the symbols whose price data is kept in memory
+     * @param cacheTtlMillis the time after which a symbol's price data is read from the database again
+     * @throws IOException if the port cannot be bound
+     */
+    public BacktestServer(int port, int maxConcurrent, long admissionWaitMillis, long maxTimeoutMillis,
+                          int cacheSymbols, long cacheTtlMillis) throws IOException {
+        this(port, maxConcurrent, admissionWaitMillis, maxTimeoutMillis, new SeriesCache(cacheSymbols, cacheTtlMillis));
+    }
+
+    public void start() {
+        server.start();
+        LOG.info("Backtest server listening on port {}", getPort());
+    }
+
+    /**
+     * Stop accepting requests and interrupt the ones still running
+     * @param graceSeconds the time given to running requests to finish
+     */
+    public void stop(int graceSeconds) {
+        server.stop(graceSeconds);
+        running.values().forEach(request -> request.cancel(false));
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Thread per task executor, virtual threads where the JDK has them (21+), a bounded platform pool otherwise
+     */
+    private static ExecutorService newRequestExecutor(int maxConcurrent) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOG.info("Handling requests on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            // Enough platform threads for the admitted requests plus those waiting for admission or being rejected
+            int threads = maxConcurrent * 2 + 8;
+            LOG.info("Virtual threads not available on Java {}, handling requests on {} platform threads",
+                    Runtime.version().feature(), threads);
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private void handleBacktest(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if ("DELETE".equals(method) && path.startsWith("/backtest/")) {
+                Running request = running.get(path.substring("/backtest/".length()));
+                if (request != null && request.cancel(false)) {
+                    respond(exchange, 202, Map.of("cancelled", true));
+                } else {
+                    respond(exchange, 404, error("No running request with this id"));
+                }
+            } else if ("POST".equals(method) && "/backtest".equals(path)) {
+                runBacktest(exchange);
+            } else {
+                respond(exchange, 405, error("Use POST /backtest or DELETE /backtest/{id}"));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Failed to handle {}", exchange.getRequestURI(), e);
+            if (exchange.getResponseCode() < 0) {
+                respond(exchange, 500, error("Internal error"));
+            }
+        }
+    }
+
+    private void runBacktest(HttpExchange exchange) throws IOException {
+        BacktestRequest request;
+        try {
+            request = BacktestRequest.parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        } catch (JSONException | RuntimeException e) {
+            // Anything the body makes parsing trip over is the client's error
+            respond(exchange, 400, error(e.getMessage()));
+            return;
+        }
+
+        boolean admitted = false;
+        try {
+            admitted = admission.tryAcquire(admissionWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!admitted) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, error("Too many backtests running"));
+            return;
+        }
+
+        Running current = new Running();
+        try {
+            if (request.id != null && running.putIfAbsent(request.id, current) != null) {
+                respond(exchange, 409, error("A request with id '" + request.id + "' is already running"));
+                return;
+            }
+            long timeoutMillis = request.timeoutMillis > 0 ? Math.min(request.timeoutMillis, maxTimeoutMillis) : maxTimeoutMillis;
+            ScheduledFuture<?> timeout = watchdog.schedule(() -> current.cancel(true), timeoutMillis, TimeUnit.MILLISECONDS);
+            int status;
+            Map<String, Object> body;
+            try {
+                body = simulate(request, current);
+                status = 200;
+                completed.incrementAndGet();
+            } catch (CancellationException | InterruptedException e) {
+                if (current.isTimedOut()) {
+                    timedOut.incrementAndGet();
+                    status = 504;
+                    body = error("Backtest exceeded " + timeoutMillis + " ms");
+                } else {
+                    cancelled.incrementAndGet();
+                    status = 409;
+                    body = error("Backtest cancelled");
+                }
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } finally {
+                timeout.cancel(false);
+                current.finish();
+            }
+            // Only once finished, so a late timeout can't interrupt writing the response
+            respond(exchange, status, body);
+        } finally {
+            if (request.id != null) {
+                running.remove(request.id, current);
+            }
+            admission.release();
+        }
+    }
+
+    private Map<String, Object> simulate(BacktestRequest request, Running current) throws InterruptedException {
+        long start = System.nanoTime();
+        Strategy strategy = StrategyFactory.getStrategy(request.strategy, request.parameters);
+        PriceSeries series = seriesCache.get(request.symbol).slice(request.from, request.to);
+        if (series.size() == 0) {
+            throw new IllegalArgumentException("No data for " + request.symbol + " from " + request.from + " to " + request.to);
+        }
+
+        current.startSimulation();
+        ExecutionEngine engine = new ExecutionEngine(request.cash, false);
+        BacktestResult result = engine.runBackTest(strategy, series.toStockData().stream());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", request.id == null ? JSONObject.NULL : request.id);
+        response.put("symbol", request.symbol);
+        response.put("strategy", StrategyFactory.getStrategyKey(request.strategy, request.parameters));
+        response.put("bars", series.size());
+        response.put("initialCash", result.getInitialCashBalance());
+        response.put("finalCash", result.getFinalCashBalance());
+        response.put("sharesOwned", result.getSharesOwned());
+        response.put("lastPrice", result.getLastPrice());
+        response.put("trades", result.getTradeCount());
+        response.put("netProfit", result.getNetProfit());
+        response.put("netProfitPercent", result.getNetProfitPercentage());
+        response.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return response;
+    }
+
+    private void handleStrategies(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            List<Map<String, Object>> strategies = new ArrayList<>();
+            for (String name : StrategyFactory.getAvailableStrategies()) {
+                List<Map<String, Object>> parameters = new ArrayList<>();
+                for (ParameterSpec spec : StrategyFactory.getParameterSpecs(name)) {
+                    parameters.add(Map.of("name", spec.getName(), "type", spec.getType().name(),
+                            "min", spec.getMin(), "max", spec.getMax(), "default", spec.getDefaultValue()));
+                }
+                strategies.add(Map.of("name", name, "parameters", parameters));
+            }
+            respond(exchange, 200, Map.of("strategies", strategies));
+        }
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            respond(exchange, 200, Map.of(
+                    "running", maxConcurrent - admission.availablePermits(),
+                    "completed", completed.get(),
+                    "rejected", rejected.get(),
+                    "timedOut", timedOut.get(),
+                    "cancelled", cancelled.get(),
+                    "cachedSymbols", seriesCache.size()));
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Map.of("error", message == null ? "unknown" : message);
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, ?> body) throws IOException {
+        byte[] bytes = new JSONObject(body).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A request in progress, cancelled at most once and never after it finished. Its thread is only interrupted
+     * while the engine runs: an interrupted database read would end as empty data in the shared series cache.
+     * A request cancelled before its simulation started fails when it gets there.
+     */
+    private static final class Running {
+        private final Thread thread = Thread.currentThread();
+        private boolean done;
+        private boolean simulating;
+        private boolean cancelled;
+        private boolean timedOut;
+
+        synchronized boolean cancel(boolean timeout) {
+            if (done || cancelled) {
+                return false;
+            }
+            cancelled = true;
+            timedOut = timeout;
+            if (simulating) {
+                thread.interrupt();
+            }
+            return true;
+        }
+
+        synchronized void startSimulation() {
+            if (cancelled) {
+                throw new CancellationException("Backtest cancelled before it started");
+            }
+            simulating = true;
+        }
+
+        synchronized boolean isTimedOut() {
+            return timedOut;
+        }
+
+        synchronized void finish() {
+            done = true;
+            simulating = false;
+            // Don't leak an interrupt that came in after the simulation checked for it to the next request
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * The JSON spec of one backtest
+     */
+    private static final class BacktestRequest {
+        private String id;
+        private String symbol;
+        private String strategy;
+        private StrategyParameters parameters;
+        private LocalDate from;
+        private LocalDate to;
+        private double cash;
+        private long timeoutMillis;
+
+        static BacktestRequest parse(String body) throws JSONException {
+            JSONObject json = new JSONObject(body);
+            BacktestRequest request = new BacktestRequest();
+            request.id = json.optString("id", null);
+            request.symbol = json.getString("symbol").trim().toUpperCase();
+            request.strategy = json.getString("strategy");
+            Map<String, Double> parameters = new HashMap<>();
+            JSONObject values = json.optJSONObject("parameters");
+            // getNames gives null rather than an empty array for {}
+            if (values != null && values.length() > 0) {
+                for (String name : JSONObject.getNames(values)) {
+                    parameters.put(name, values.getDouble(name));
+                }
+            }
+            request.parameters = StrategyParameters.of(parameters);
+            request.from = LocalDate.parse(json.optString("from", "1900-01-01"));
+            request.to = LocalDate.parse(json.optString("to", "9999-12-31"));
+            request.cash = json.optDouble("cash", 10_000);
+            request.timeoutMillis = json.optLong("timeoutMillis", 0);
+            if (!(request.cash > 0)) {
+                throw new IllegalArgumentException("cash must be positive");
+            }
+            return request;
+        }
+    }
+}
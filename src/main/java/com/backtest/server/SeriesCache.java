@@ -0,0 +1,101 @@
+package com.backtest.server;
+
+import com.backtest.db.DataRepository;
+import com.backtest.db.PriceSeries;
+import com.backtest.db.StockData;
+
+import java.sql.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Full price histories shared by all requests of the server, least recently used symbols are evicted beyond
+ * a maximum count. Concurrent requests for a symbol that is not loaded yet wait for one load rather than each
+ * querying the database. Entries are reloaded after a time to live, so newly ingested rows show up eventually.
+ * A load that finds no data is not kept: the repository reports read errors as empty data, and a symbol that is
+ * ingested later should show up on the next request.
+ */
+final class SeriesCache {
+    private final int maxSymbols;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param maxSymbols
+     * @param ttlMillis the time after which a symbol is read from the database again
+     */
+    SeriesCache(int maxSymbols, long ttlMillis) {
+        this.maxSymbols = maxSymbols;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SeriesCache.this.maxSymbols;
+            }
+        };
+    }
+
+    /**
+     * @param symbol
+     * @return all stored bars of the symbol, empty if there are none
+     * @throws InterruptedException if interrupted while waiting for another request's load
+     */
+    PriceSeries get(String symbol) throws InterruptedException {
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(symbol);
+            if (entry == null || System.nanoTime() - entry.loadedAt > ttlNanos) {
+                entry = new Entry();
+                entries.put(symbol, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            try {
+                PriceSeries series = load(symbol);
+                if (series.size() == 0) {
+                    evict(symbol, entry);
+                }
+                entry.series.complete(series);
+            } catch (RuntimeException e) {
+                evict(symbol, entry);
+                entry.series.completeExceptionally(e);
+            }
+        }
+        try {
+            return entry.series.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load " + symbol, e.getCause());
+        }
+    }
+
+    private void evict(String symbol, Entry entry) {
+        synchronized (entries) {
+            entries.remove(symbol, entry);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static PriceSeries load(String symbol) {
+        Date[] range = DataRepository.getAvailableDateRange(symbol);
+        if (range[0] == null) {
+            return PriceSeries.of(symbol, List.of());
+        }
+        List<StockData> bars = DataRepository.retrievePriceData(symbol, range[0], range[1]);
+        return PriceSeries.of(symbol, bars);
+    }
+
+    private static final class Entry {
+        private final long loadedAt = System.nanoTime();
+        private final CompletableFuture<PriceSeries> series = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,17 @@
+package com.backtest.strategy;
+
+public class ExponentialMovingAverageProvider implements StrategyProvider {
+
+    @Override
+    public String getName() {
+        return "EMA";
+    }
+
+    @Override
+    public Strategy create(StrategyParameters parameters) {
+        return new ExponentialMovingAverageStrategy(
+                parameters.getInt(StrategyParameters.OBSERVATION_WINDOW),
+                parameters.getDouble(StrategyParameters.STOP_LOSS_PERCENT),
+                parameters.getDouble(StrategyParameters.TAKE_PROFIT_PERCENT));
+    }
+}
@@ -0,0 +1,83 @@
+package com.backtest.strategy;
+
+import com.backtest.db.StockData;
+
+/**
+ * Shared trading logic of the moving average strategies: buy when the close is below the average,
+ * sell when it is above it or the stop-loss / take-profit level is reached.
+ * <p>
+ * In a backtest a bar is decided when the next bar arrives, which keeps the signals identical to the original
+ * batch implementation that never traded on the last bar of the history. A live generator decides the same way
+ * but as soon as the bar arrives, so its signals are the same, one bar earlier, plus those on the latest bar.
+ */
+abstract class MovingAverageSignalGenerator implements SignalGenerator {
+    protected final int observationWindow;
+    private final double stopLossPercent;
+    private final double takeProfitPercent;
+    private final boolean live;
+    private int bars;
+    private StockData previousDay;
+    private boolean isPositionOpen;
+    private double entryPrice;
+
+    /**
+     * @param observationWindow
+     * @param stopLossPercent
+     * @param takeProfitPercent
+     * @param live decide a bar when it arrives instead of when the next one does
+     */
+    MovingAverageSignalGenerator(int observationWindow, double stopLossPercent, double takeProfitPercent, boolean live) {
+        this.observationWindow = observationWindow;
+        this.stopLossPercent = stopLossPercent;
+        this.takeProfitPercent = takeProfitPercent;
+        this.live = live;
+    }
+
+    /**
+     * @param bars the number of bars added so far
+     * @return the average the previous bar is compared with
+     */
+    protected abstract double average(int bars);
+
+    /**
+     * Add a bar to the average
+     * @param bar
+     * @param index the position of the bar in the run
+     */
+    protected abstract void add(StockData bar, int index);
+
+    @Override
+    public TradeSignal onBar(StockData bar) {
+        if (live) {
+            add(bar, bars);
+            bars++;
+            return bars >= observationWindow ? decide(bar, average(bars)) : null;
+        }
+        TradeSignal signal = bars >= observationWindow ? decide(previousDay, average(bars)) : null;
+        add(bar, bars);
+        previousDay = bar;
+        bars++;
+        return signal;
+    }
+
+    private TradeSignal decide(StockData currentDay, double average) {
+        double closingPrice = currentDay.getClose();
+
+        // Calculate stop-loss and take-profit levels
+        double stopLoss = isPositionOpen ? entryPrice * (1 - stopLossPercent) : 0;
+        double takeProfit = isPositionOpen ? entryPrice * (1 + takeProfitPercent) : 0;
+
+        if (!isPositionOpen && closingPrice < average) {
+            // Enter position
+            isPositionOpen = true;
+            entryPrice = closingPrice;
+            return new TradeSignal("BUY", currentDay.getTradeDate(), closingPrice);
+        } else if (isPositionOpen && (closingPrice > average || closingPrice <= stopLoss || closingPrice >= takeProfit)) {
+            // Exit position on SELL signal, stop-loss, or take-profit
+            isPositionOpen = false;
+            entryPrice = 0.0;
+            return new TradeSignal("SELL", currentDay.getTradeDate(), closingPrice);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.backtest.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes one tunable parameter of a strategy: its type, valid range and default value.
+ */
+public final class ParameterSpec {
+    public enum Type { INT, DOUBLE }
+
+    private final String name;
+    private final Type type;
+    private final double min;
+    private final double max;
+    private final double defaultValue;
+
+    private ParameterSpec(String name, Type type, double min, double max, double defaultValue) {
+        if (min > max || defaultValue < min || defaultValue > max) {
+            throw new IllegalArgumentException("Invalid range for parameter '" + name + "'");
+        }
+        this.name = name;
+        this.type = type;
+        this.min = min;
+        this.max = max;
+        this.defaultValue = defaultValue;
+    }
+
+    public static ParameterSpec ofInt(String name, int min, int max, int defaultValue) {
+        return new ParameterSpec(name, Type.INT, min, max, defaultValue);
+    }
+
+    public static ParameterSpec ofDouble(String name, double min, double max, double defaultValue) {
+        return new ParameterSpec(name, Type.DOUBLE, min, max, defaultValue);
+    }
+
+    public String getName() {return name;}
+    public Type getType() {return type;}
+    public double getMin() {return min;}
+    public double getMax() {return max;}
+    public double getDefaultValue() {return defaultValue;}
+
+    /**
+     * Check a value against the type and range of this parameter
+     * @param value
+     * @return the value, rounded for INT parameters
+     * @throws IllegalArgumentException if the value is out of range or not an integer for INT parameters
+     */
+    public double validate(double value) {
+        if (Double.isNaN(value) || value < min || value > max) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be between " + min + " and " + max + " but was " + value);
+        }
+        if (type == Type.INT && value != Math.rint(value)) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be an integer but was " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Evenly spaced values over the parameter range, e.g. for a parameter sweep
+     * @param count the number of values, at least 1
+     * @return distinct values from min to max (INT parameters are rounded and de-duplicated)
+     */
+    public List<Double> grid(int count) {
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double value = count == 1 ? defaultValue : min + (max - min) * i / (count - 1);
+            if (type == Type.INT) value = Math.rint(value);
+            if (values.isEmpty() || values.get(values.size() - 1) != value) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type + ", " + min + " to " + max + ", default " + defaultValue + ")";
+    }
+}
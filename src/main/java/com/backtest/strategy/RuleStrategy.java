@@ -0,0 +1,88 @@
+package com.backtest.strategy;
+
+import com.backtest.db.StockData;
+import com.backtest.strategy.rule.CompiledRule;
+import com.backtest.strategy.rule.RuleCompiler;
+import com.backtest.strategy.rule.RuleDefinition;
+import com.backtest.strategy.rule.RuleEvaluator;
+import com.backtest.strategy.rule.RuleParser;
+
+/**
+ * Strategy defined by a rule text such as {@code buy when close < sma(20) and rsi(14) < 30; sell when close > sma(20)}.
+ * The rule is parsed once and compiled into a per-bar evaluator; stop-loss and take-profit apply as in the other strategies.
+ * Immutable and thread-safe: the compiled rule is shared and every run gets its own evaluator.
+ */
+public class RuleStrategy implements Strategy {
+    private final String name;
+    private final CompiledRule compiledRule;
+    private final double stopLossPercent;
+    private final double takeProfitPercent;
+    private final int observationWindow;
+
+    public RuleStrategy(String name, String ruleText) {
+        this(name, RuleParser.parse(ruleText), OBSERVATION_WINDOW, STOP_LOSS_PERCENT, TAKE_PROFIT_PERCENT);
+    }
+
+    /**
+     * @param name
+     * @param definition the parsed rule, shared by all instances of the same rule
+     * @param observationWindow the period of indicators written without one, e.g. sma()
+     * @param stopLossPercent
+     * @param takeProfitPercent
+     */
+    public RuleStrategy(String name, RuleDefinition definition, int observationWindow, double stopLossPercent, double takeProfitPercent) {
+        this.name = name;
+        this.compiledRule = RuleCompiler.compile(definition, observationWindow);
+        this.observationWindow = observationWindow;
+        this.stopLossPercent = stopLossPercent;
+        this.takeProfitPercent = takeProfitPercent;
+    }
+
+    public String getName() {return name;}
+    public RuleDefinition getDefinition() {return compiledRule.getDefinition();}
+
+    @Override
+    public int getMinimumBars() {
+        return Math.max(observationWindow, compiledRule.getWarmUpBars());
+    }
+
+    /**
+     * Evaluate the compiled rule bar by bar; a bar is decided as soon as it arrives, but not before the minimum
+     * number of bars, since conditions such as 'not' or '!=' hold on indicators that have no value yet
+     */
+    @Override
+    public SignalGenerator newSignalGenerator() {
+        RuleEvaluator evaluator = compiledRule.newEvaluator();
+        return new SignalGenerator() {
+            private final int minimumBars = getMinimumBars();
+            private int bars;
+            private boolean isPositionOpen;
+            private double entryPrice;
+
+            @Override
+            public TradeSignal onBar(StockData currentDay) {
+                evaluator.advance(currentDay);
+                if (++bars < minimumBars) {
+                    return null;
+                }
+                double closingPrice = currentDay.getClose();
+
+                if (!isPositionOpen) {
+                    if (evaluator.isBuySignal()) {
+                        isPositionOpen = true;
+                        entryPrice = closingPrice;
+                        return new TradeSignal("BUY", currentDay.getTradeDate(), closingPrice);
+                    }
+                } else if (evaluator.isSellSignal()
+                        || closingPrice <= entryPrice * (1 - stopLossPercent)
+                        || closingPrice >= entryPrice * (1 + takeProfitPercent)) {
+                    // Exit position on SELL signal, stop-loss, or take-profit
+                    isPositionOpen = false;
+                    entryPrice = 0.0;
+                    return new TradeSignal("SELL", currentDay.getTradeDate(), closingPrice);
+                }
+                return null;
+            }
+        };
+    }
+}
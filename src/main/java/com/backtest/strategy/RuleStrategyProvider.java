@@ -0,0 +1,40 @@
+package com.backtest.strategy;
+
+import com.backtest.strategy.rule.RuleDefinition;
+import com.backtest.strategy.rule.RuleParser;
+
+/**
+ * Provider for a rule-based strategy. The rule is parsed once here; each parameter set compiles it once
+ * and the registry caches the result.
+ */
+public class RuleStrategyProvider implements StrategyProvider {
+    private final String name;
+    private final RuleDefinition definition;
+
+    /**
+     * @param name
+     * @param rule the rule text
+     * @throws com.backtest.strategy.rule.RuleSyntaxException if the rule cannot be parsed
+     */
+    public RuleStrategyProvider(String name, String rule) {
+        this.name = name;
+        this.definition = RuleParser.parse(rule);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public RuleDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public Strategy create(StrategyParameters parameters) {
+        return new RuleStrategy(name, definition,
+                parameters.getInt(StrategyParameters.OBSERVATION_WINDOW),
+                parameters.getDouble(StrategyParameters.STOP_LOSS_PERCENT),
+                parameters.getDouble(StrategyParameters.TAKE_PROFIT_PERCENT));
+    }
+}
@@ -0,0 +1,17 @@
+package com.backtest.strategy;
+
+import com.backtest.db.StockData;
+
+/**
+ * Incremental state of one strategy run. Bars are pushed one at a time in date order, so a strategy can run
+ * on a stream of bars as well as on a complete history.
+ */
+public interface SignalGenerator {
+
+    /**
+     * Consume the next bar
+     * @param bar the next bar in date order
+     * @return the trade signal this bar produced, or null
+     */
+    TradeSignal onBar(StockData bar);
+}
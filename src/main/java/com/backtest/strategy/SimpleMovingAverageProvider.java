@@ -0,0 +1,17 @@
+package com.backtest.strategy;
+
+public class SimpleMovingAverageProvider implements StrategyProvider {
+
+    @Override
+    public String getName() {
+        return "SMA";
+    }
+
+    @Override
+    public Strategy create(StrategyParameters parameters) {
+        return new SimpleMovingAverageStrategy(
+                parameters.getInt(StrategyParameters.OBSERVATION_WINDOW),
+                parameters.getDouble(StrategyParameters.STOP_LOSS_PERCENT),
+                parameters.getDouble(StrategyParameters.TAKE_PROFIT_PERCENT));
+    }
+}
@@ -2,6 +2,7 @@ package com.backtest.strategy;
 
 import com.backtest.db.StockData;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Strategy {
@@ -9,9 +10,45 @@ public interface Strategy {
     double TAKE_PROFIT_PERCENT = 0.20;
     int OBSERVATION_WINDOW = 10;
 
-    List<TradeSignal> simulateTrades(List<StockData> marketData);
+    /**
+     * Start a run of this strategy. Implementations are immutable and keep all run state in the generator,
+     * so one instance can be shared by concurrent backtests.
+     * @return a generator with empty state
+     */
+    SignalGenerator newSignalGenerator();
 
-    void setStopLossPercent(double percent);
-    void setTakeProfitPercent(double percent);
-    void setObservationWindow(int days);
+    /**
+     * Start a run on a live feed, which must decide each bar as soon as it arrives
+     * @return a generator with empty state, by default {@link #newSignalGenerator()} for strategies that
+     *         already decide a bar on arrival
+     */
+    default SignalGenerator newLiveSignalGenerator() {
+        return newSignalGenerator();
+    }
+
+    /**
+     * @return the number of bars a run needs at least
+     */
+    int getMinimumBars();
+
+    /**
+     * Simulate trades over the market data by feeding it bar by bar to a new signal generator.
+     * @param marketData A list of StockData objects in date order.
+     * @return Returns a list of all generated trade signals.
+     */
+    default List<TradeSignal> simulateTrades(List<StockData> marketData) {
+        if (marketData == null || marketData.size() < getMinimumBars()) {
+            throw new IllegalArgumentException("Insufficient market data");
+        }
+
+        SignalGenerator generator = newSignalGenerator();
+        List<TradeSignal> tradeSignals = new ArrayList<>();
+        for (StockData bar : marketData) {
+            TradeSignal signal = generator.onBar(bar);
+            if (signal != null) {
+                tradeSignals.add(signal);
+            }
+        }
+        return tradeSignals;
+    }
 }
@@ -1,35 +1,67 @@
 package com.backtest.strategy;
 
 import java.util.List;
+import java.util.Locale;
 
 public class StrategyFactory {
 
+    private StrategyFactory() {
+    }
+
     /**
      * Method to get a specific strategy based on the params
      * @param strategyName
      * @param observationWindow
      * @param stopLossPercent
      * @param takeProfitPercent
-     * @return A specific strategy class implemented from Strategy interface
+     * @return A shared, immutable strategy instance from the {@link StrategyRegistry}
      */
     public static Strategy getStrategy(String strategyName, int observationWindow, double stopLossPercent, double takeProfitPercent) {
-        switch (strategyName.toUpperCase()) {
-            case "SMA":
-                SimpleMovingAverageStrategy strategy = new SimpleMovingAverageStrategy();
-                strategy.setStopLossPercent(stopLossPercent);
-                strategy.setTakeProfitPercent(takeProfitPercent);
-                strategy.setObservationWindow(observationWindow);
-                return strategy;
-            case "EMA":
-                ExponentialMovingAverageStrategy strategy1 = new ExponentialMovingAverageStrategy();
-                strategy1.setStopLossPercent(stopLossPercent);
-                strategy1.setTakeProfitPercent(takeProfitPercent);
-                strategy1.setObservationWindow(observationWindow);
-                return strategy1;
-
-            default:
-                throw new IllegalArgumentException("Unknown strategy '" + strategyName + "'");
+        return getStrategy(strategyName, StrategyParameters.of(observationWindow, stopLossPercent, takeProfitPercent));
+    }
+
+    /**
+     * Method to get a specific strategy based on named params, missing params take their defaults
+     * @param strategyName
+     * @param parameters
+     * @return A shared, immutable strategy instance from the {@link StrategyRegistry}
+     */
+    public static Strategy getStrategy(String strategyName, StrategyParameters parameters) {
+        return StrategyRegistry.getDefault().getStrategy(strategyName, parameters);
+    }
+
+    /**
+     * Identify a configured strategy, two calls with equivalent params return the same key
+     * @param strategyName
+     * @param parameters missing params take their defaults
+     * @return the strategy name with its normalized params
+     */
+    public static String getStrategyKey(String strategyName, StrategyParameters parameters) {
+        return StrategyRegistry.getDefault().getKey(strategyName, parameters);
+    }
+
+    /**
+     * Describe the parameters a strategy accepts
+     * @param strategyName
+     * @return the parameter specs with types, ranges and defaults
+     */
+    public static List<ParameterSpec> getParameterSpecs(String strategyName) {
+        return StrategyRegistry.getDefault().getProvider(strategyName).getParameters();
+    }
+
+    /**
+     * Register a rule-based strategy, replacing any rule with the same name
+     * @param strategyName
+     * @param rule the rule text, e.g. "buy when close &lt; sma(20); sell when close &gt; sma(20)"
+     * @throws com.backtest.strategy.rule.RuleSyntaxException if the rule cannot be parsed
+     */
+    public static void registerRuleStrategy(String strategyName, String rule) {
+        String name = strategyName.trim().toUpperCase(Locale.ROOT);
+        StrategyRegistry registry = StrategyRegistry.getDefault();
+        if (registry.getNames().contains(name) && !(registry.getProvider(name) instanceof RuleStrategyProvider)) {
+            throw new IllegalArgumentException("Cannot replace strategy '" + name + "'");
         }
+        registry.register(new RuleStrategyProvider(name, rule));
     }
 
     /**
@@ -37,7 +69,7 @@ public class StrategyFactory {
      * @return a list of available strategies.
      */
     public static List<String> getAvailableStrategies() {
-        return List.of("SMA", "EMA"); // Add more strategies here as they are developed.
+        return StrategyRegistry.getDefault().getNames();
     }
 
 }
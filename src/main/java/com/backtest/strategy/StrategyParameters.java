@@ -0,0 +1,114 @@
+package com.backtest.strategy;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of named strategy parameters. Names are kept sorted and values are stored as doubles,
+ * so two parameter sets with the same values are equal and have the same {@link #toString()} key
+ * regardless of how they were built.
+ */
+public final class StrategyParameters {
+    public static final String OBSERVATION_WINDOW = "observationWindow";
+    public static final String STOP_LOSS_PERCENT = "stopLossPercent";
+    public static final String TAKE_PROFIT_PERCENT = "takeProfitPercent";
+
+    private final Map<String, Double> values;
+
+    private StrategyParameters(Map<String, Double> values) {
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    public static StrategyParameters of(Map<String, ? extends Number> values) {
+        Map<String, Double> sorted = new TreeMap<>();
+        values.forEach((name, value) -> sorted.put(name, value.doubleValue()));
+        return new StrategyParameters(sorted);
+    }
+
+    /**
+     * The parameters every built-in strategy understands
+     */
+    public static StrategyParameters of(int observationWindow, double stopLossPercent, double takeProfitPercent) {
+        return of(Map.of(OBSERVATION_WINDOW, observationWindow,
+                STOP_LOSS_PERCENT, stopLossPercent,
+                TAKE_PROFIT_PERCENT, takeProfitPercent));
+    }
+
+    /**
+     * Parse the form written by {@link #toString()}, e.g. "observationWindow=10.0,stopLossPercent=0.1"
+     * @param text
+     * @return the parameters
+     * @throws IllegalArgumentException if the text is not in that form
+     */
+    public static StrategyParameters parse(String text) {
+        Map<String, Double> values = new TreeMap<>();
+        if (!text.isEmpty()) {
+            for (String pair : text.split(",")) {
+                int separator = pair.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid parameter '" + pair + "', expected name=value");
+                }
+                values.put(pair.substring(0, separator), Double.parseDouble(pair.substring(separator + 1)));
+            }
+        }
+        return new StrategyParameters(values);
+    }
+
+    /**
+     * Validate against the given specs and fill in defaults for missing parameters
+     * @param specs
+     * @return the normalized parameters
+     * @throws IllegalArgumentException for unknown or out of range parameters
+     */
+    public StrategyParameters normalize(Iterable<ParameterSpec> specs) {
+        Map<String, Double> normalized = new TreeMap<>();
+        for (ParameterSpec spec : specs) {
+            Double value = values.get(spec.getName());
+            normalized.put(spec.getName(), value == null ? spec.getDefaultValue() : spec.validate(value));
+        }
+        for (String name : values.keySet()) {
+            if (!normalized.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown parameter '" + name + "'");
+            }
+        }
+        return new StrategyParameters(normalized);
+    }
+
+    public double getDouble(String name) {
+        Double value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    public int getInt(String name) {
+        return (int) getDouble(name);
+    }
+
+    public Map<String, Double> asMap() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StrategyParameters && values.equals(((StrategyParameters) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        values.forEach((name, value) -> {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(name).append('=').append(value);
+        });
+        return sb.toString();
+    }
+}
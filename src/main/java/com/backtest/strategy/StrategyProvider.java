@@ -0,0 +1,34 @@
+package com.backtest.strategy;
+
+import java.util.List;
+
+/**
+ * Creates configured instances of one kind of strategy. Implementations are discovered with
+ * {@link java.util.ServiceLoader}, so a new strategy only needs a provider class listed in
+ * META-INF/services/com.backtest.strategy.StrategyProvider.
+ */
+public interface StrategyProvider {
+    List<ParameterSpec> STANDARD_PARAMETERS = List.of(
+            ParameterSpec.ofInt(StrategyParameters.OBSERVATION_WINDOW, 2, 250, Strategy.OBSERVATION_WINDOW),
+            ParameterSpec.ofDouble(StrategyParameters.STOP_LOSS_PERCENT, 0.0, 1.0, Strategy.STOP_LOSS_PERCENT),
+            ParameterSpec.ofDouble(StrategyParameters.TAKE_PROFIT_PERCENT, 0.0, 1.0, Strategy.TAKE_PROFIT_PERCENT));
+
+    /**
+     * @return the upper-case name users select the strategy by, e.g. "SMA"
+     */
+    String getName();
+
+    /**
+     * @return the parameter space of the strategy
+     */
+    default List<ParameterSpec> getParameters() {
+        return STANDARD_PARAMETERS;
+    }
+
+    /**
+     * Create an immutable, thread-safe strategy instance
+     * @param parameters normalized against {@link #getParameters()}
+     * @return the configured strategy
+     */
+    Strategy create(StrategyParameters parameters);
+}
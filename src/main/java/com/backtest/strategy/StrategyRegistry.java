@@ -0,0 +1,180 @@
+package com.backtest.strategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of strategy providers. Providers are discovered with {@link ServiceLoader} and rule-based
+ * strategies are loaded from the strategies.rules classpath file.
+ * <p>
+ * Configured strategies are immutable, so instances are cached per (name, normalized parameters)
+ * and the same instance is handed to every caller and worker thread. Lookups of cached instances don't lock.
+ * The cache is emptied when it exceeds {@value #MAX_INSTANCES} configurations, so arbitrary parameters, e.g. from
+ * server requests, can't grow it without bound.
+ */
+public class StrategyRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(StrategyRegistry.class);
+    private static final String RULES_FILE = "strategies.rules";
+    private static final int MAX_INSTANCES = 4096;
+    private static final StrategyRegistry DEFAULT = createDefault();
+
+    // Registration order is kept for listing, lookups go through the concurrent maps
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, StrategyProvider> providers = new ConcurrentHashMap<>();
+    // Each instance with the provider that created it, an instance of a replaced provider is never handed out
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+
+    private static final class Instance {
+        private final StrategyProvider provider;
+        private final Strategy strategy;
+
+        private Instance(StrategyProvider provider, Strategy strategy) {
+            this.provider = provider;
+            this.strategy = strategy;
+        }
+    }
+
+    /**
+     * @return the registry with all discovered providers and rules
+     */
+    public static StrategyRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static StrategyRegistry createDefault() {
+        StrategyRegistry registry = new StrategyRegistry();
+        for (StrategyProvider provider : ServiceLoader.load(StrategyProvider.class)) {
+            registry.register(provider);
+        }
+        registry.loadRules(RULES_FILE);
+        return registry;
+    }
+
+    /**
+     * Register a provider, replacing any provider with the same name and its cached instances
+     * @param provider
+     */
+    public void register(StrategyProvider provider) {
+        String name = provider.getName().toUpperCase(Locale.ROOT);
+        StrategyProvider previous;
+        synchronized (names) {
+            previous = providers.put(name, provider);
+            if (previous == null) {
+                names.add(name);
+            }
+        }
+        if (previous != null) {
+            instances.values().removeIf(instance -> instance.provider == previous);
+        }
+    }
+
+    /**
+     * @return the registered strategy names in registration order
+     */
+    public List<String> getNames() {
+        synchronized (names) {
+            return List.copyOf(names);
+        }
+    }
+
+    /**
+     * @param name case-insensitive strategy name
+     * @return the provider
+     * @throws IllegalArgumentException if no strategy has this name
+     */
+    public StrategyProvider getProvider(String name) {
+        StrategyProvider provider = providers.get(name.toUpperCase(Locale.ROOT));
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown strategy '" + name + "'");
+        }
+        return provider;
+    }
+
+    /**
+     * Get a configured strategy, creating it on first use
+     * @param name case-insensitive strategy name
+     * @param parameters missing parameters take their defaults
+     * @return a shared, immutable strategy instance
+     * @throws IllegalArgumentException for unknown strategies or invalid parameters
+     */
+    public Strategy getStrategy(String name, StrategyParameters parameters) {
+        StrategyProvider provider = getProvider(name);
+        StrategyParameters normalized = parameters.normalize(provider.getParameters());
+        String key = key(provider, normalized);
+        Instance instance = instances.get(key);
+        if (instance != null && instance.provider == provider) {
+            return instance.strategy;
+        }
+        // Only callers of the same key wait for the creation, an instance of a replaced provider is overwritten
+        instance = instances.compute(key, (k, cached) -> cached != null && cached.provider == provider
+                ? cached : new Instance(provider, provider.create(normalized)));
+        if (instances.size() > MAX_INSTANCES) {
+            instances.clear();
+        }
+        return instance.strategy;
+    }
+
+    /**
+     * Identify a configured strategy, e.g. to cache its results
+     * @param name case-insensitive strategy name
+     * @param parameters missing parameters take their defaults
+     * @return the name and normalized parameters, plus the rule text for rule-based strategies
+     * @throws IllegalArgumentException for unknown strategies or invalid parameters
+     */
+    public String getKey(String name, StrategyParameters parameters) {
+        StrategyProvider provider = getProvider(name);
+        return key(provider, parameters.normalize(provider.getParameters()));
+    }
+
+    private static String key(StrategyProvider provider, StrategyParameters normalized) {
+        String key = provider.getName().toUpperCase(Locale.ROOT) + "|" + normalized;
+        if (provider instanceof RuleStrategyProvider) {
+            key += "|" + ((RuleStrategyProvider) provider).getDefinition().getText();
+        }
+        return key;
+    }
+
+    /**
+     * Register rule-based strategies from a classpath file with one "NAME: rule" per line
+     * @param fileName
+     */
+    void loadRules(String fileName) {
+        InputStream inputStream = StrategyRegistry.class.getClassLoader().getResourceAsStream(fileName);
+        if (inputStream == null) {
+            return; // No user-defined strategies
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                int separator = line.indexOf(':');
+                if (line.isEmpty() || line.startsWith("#") || separator < 0) {
+                    continue;
+                }
+                String name = line.substring(0, separator).trim().toUpperCase(Locale.ROOT);
+                try {
+                    if (providers.containsKey(name) && !(providers.get(name) instanceof RuleStrategyProvider)) {
+                        throw new IllegalArgumentException("Cannot replace strategy '" + name + "'");
+                    }
+                    register(new RuleStrategyProvider(name, line.substring(separator + 1)));
+                } catch (IllegalArgumentException e) {
+                    LOG.error("Skipping invalid strategy rule '{}': {}", line, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Cannot load strategy rules from {}", fileName, e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.backtest.strategy.cross;
+
+import com.backtest.db.PriceMatrix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The universe on the current date of a cross-sectional run: closes, one-bar log returns and the rolling
+ * statistics of those returns. Statistics are registered by the generators before the first bar and shared, so
+ * strategies evaluated in the same pass that ask for the same window get the same instance, updated once per bar.
+ */
+public final class CrossSection {
+    private final PriceMatrix matrix;
+    private final int width;
+    private final double[] returns;
+    private final Map<Integer, RollingMoments> moments = new HashMap<>();
+    private final Map<List<Integer>, RollingCovariance> covariances = new HashMap<>();
+    private final List<int[]> covariancePairs = new ArrayList<>();
+    private final List<RollingCovariance> covarianceStats = new ArrayList<>();
+    private int bar = -1;
+
+    /**
+     * @param matrix
+     */
+    public CrossSection(PriceMatrix matrix) {
+        this.matrix = matrix;
+        this.width = matrix.getWidth();
+        this.returns = new double[width];
+    }
+
+    /**
+     * Move to the next date and update all registered statistics
+     * @return false past the last date
+     */
+    public boolean advance() {
+        if (bar + 1 >= matrix.getLength()) {
+            return false;
+        }
+        bar++;
+        double[] closes = matrix.getCloses();
+        int offset = bar * width;
+        for (int i = 0; i < width; i++) {
+            // NaN for the first date or a gap on either side
+            returns[i] = bar == 0 ? Double.NaN : Math.log(closes[offset + i] / closes[offset - width + i]);
+        }
+        for (RollingMoments stats : moments.values()) {
+            stats.update(returns);
+        }
+        for (int i = 0; i < covariancePairs.size(); i++) {
+            int[] pair = covariancePairs.get(i);
+            covarianceStats.get(i).update(returns[pair[0]], returns[pair[1]]);
+        }
+        return true;
+    }
+
+    public PriceMatrix getMatrix() {return matrix;}
+    public int getWidth() {return width;}
+
+    /**
+     * @return the index of the current date in the matrix, -1 before the first {@link #advance()}
+     */
+    public int getBar() {return bar;}
+
+    public int getEpochDay() {
+        return matrix.getEpochDay(bar);
+    }
+
+    /**
+     * @return the close of a symbol on the current date, NaN if it has no bar
+     */
+    public double getClose(int column) {
+        return matrix.getClose(bar, column);
+    }
+
+    /**
+     * @return the log returns of all symbols into the current date, NaN where either close is missing; not to be modified
+     */
+    public double[] getReturns() {
+        return returns;
+    }
+
+    /**
+     * The rolling moments of the returns of all symbols over a window, shared by everyone asking for that window
+     * @param window
+     * @return the statistics, updated on every {@link #advance()}
+     * @throws IllegalStateException after the first date
+     */
+    public RollingMoments getReturnMoments(int window) {
+        checkRegistration();
+        return moments.computeIfAbsent(window, w -> new RollingMoments(width, w));
+    }
+
+    /**
+     * The rolling covariance of the returns of two symbols over a window, shared by everyone asking for that pair
+     * @param x the column of the first symbol
+     * @param y the column of the second symbol
+     * @param window
+     * @return the statistics, updated on every {@link #advance()}
+     * @throws IllegalStateException after the first date
+     */
+    public RollingCovariance getReturnCovariance(int x, int y, int window) {
+        checkRegistration();
+        return covariances.computeIfAbsent(List.of(x, y, window), key -> {
+            RollingCovariance stats = new RollingCovariance(window);
+            covariancePairs.add(new int[] {x, y});
+            covarianceStats.add(stats);
+            return stats;
+        });
+    }
+
+    private void checkRegistration() {
+        if (bar >= 0) {
+            throw new IllegalStateException("Rolling statistics must be registered before the first date");
+        }
+    }
+}
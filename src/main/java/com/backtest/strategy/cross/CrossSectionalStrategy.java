@@ -0,0 +1,22 @@
+package com.backtest.strategy.cross;
+
+/**
+ * A strategy over a universe of symbols rather than a single one, e.g. pairs trading or momentum ranking.
+ * Like {@link com.backtest.strategy.Strategy}, implementations are immutable and keep all run state in the
+ * generator.
+ */
+public interface CrossSectionalStrategy {
+
+    /**
+     * Start a run of this strategy on a universe. Rolling statistics the run needs are registered on the
+     * cross-section here, before the first date.
+     * @param section the universe the run will see, not advanced yet
+     * @return a generator with empty state
+     */
+    PortfolioGenerator newGenerator(CrossSection section);
+
+    /**
+     * @return the number of dates a run needs at least
+     */
+    int getMinimumBars();
+}
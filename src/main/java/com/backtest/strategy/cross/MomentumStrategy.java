@@ -0,0 +1,76 @@
+package com.backtest.strategy.cross;
+
+import com.backtest.util.PrimitiveSort;
+
+import java.util.Arrays;
+
+/**
+ * Cross-sectional momentum: every rebalance period, rank the universe by the mean of its daily log returns over
+ * the lookback window divided by their standard deviation, and hold the top N in equal weights. Symbols without a
+ * full window of returns are not ranked.
+ */
+public final class MomentumStrategy implements CrossSectionalStrategy {
+    private final int lookback;
+    private final int topCount;
+    private final int rebalanceBars;
+
+    /**
+     * @param lookback the returns each score is computed over
+     * @param topCount the symbols held
+     * @param rebalanceBars the dates between rebalances
+     */
+    public MomentumStrategy(int lookback, int topCount, int rebalanceBars) {
+        if (topCount < 1 || rebalanceBars < 1) {
+            throw new IllegalArgumentException("Top count and rebalance period must be positive");
+        }
+        this.lookback = lookback;
+        this.topCount = topCount;
+        this.rebalanceBars = rebalanceBars;
+    }
+
+    @Override
+    public PortfolioGenerator newGenerator(CrossSection section) {
+        RollingMoments moments = section.getReturnMoments(lookback);
+        int width = section.getWidth();
+        double[] scores = new double[width];
+        int[] ranking = new int[width];
+
+        return (current, weights) -> {
+            // The first return is on the second date
+            int bar = current.getBar() - lookback;
+            if (bar < 0 || bar % rebalanceBars != 0) {
+                return;
+            }
+            int ranked = 0;
+            for (int i = 0; i < width; i++) {
+                if (moments.isReady(i)) {
+                    double stdDev = moments.getStdDev(i);
+                    scores[i] = stdDev > 0 ? moments.getMean(i) / stdDev : Double.NaN;
+                    if (!Double.isNaN(scores[i])) {
+                        ranked++;
+                    }
+                } else {
+                    scores[i] = Double.NaN;
+                }
+                ranking[i] = i;
+            }
+            // NaN scores sort last, so the first min(topCount, ranked) are the leaders
+            PrimitiveSort.sortIndexesDescending(scores, ranking, 0, width);
+            int held = Math.min(topCount, ranked);
+            Arrays.fill(weights, 0);
+            for (int i = 0; i < held; i++) {
+                weights[ranking[i]] = 1.0 / held;
+            }
+        };
+    }
+
+    @Override
+    public int getMinimumBars() {
+        return lookback + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "MOMENTUM(lookback=" + lookback + ", top=" + topCount + ", rebalance=" + rebalanceBars + ")";
+    }
+}
@@ -0,0 +1,87 @@
+package com.backtest.strategy.cross;
+
+/**
+ * Pairs trading on the log price ratio of two symbols. When the z-score of the ratio over the window moves beyond
+ * the entry threshold and the returns of the two are correlated enough, the strategy sells the rich leg and buys
+ * the cheap one, hedged by the rolling beta of their returns. The position is closed once the z-score comes back
+ * within the exit threshold.
+ */
+public final class PairsStrategy implements CrossSectionalStrategy {
+    private final String first;
+    private final String second;
+    private final int window;
+    private final double entryZScore;
+    private final double exitZScore;
+    private final double minCorrelation;
+
+    /**
+     * @param first
+     * @param second
+     * @param window the dates the spread and return statistics are computed over
+     * @param entryZScore
+     * @param exitZScore
+     * @param minCorrelation the return correlation needed to open a position
+     */
+    public PairsStrategy(String first, String second, int window, double entryZScore, double exitZScore, double minCorrelation) {
+        if (!(exitZScore >= 0 && exitZScore < entryZScore)) {
+            throw new IllegalArgumentException("Exit z-score must be between 0 and the entry z-score");
+        }
+        this.first = first;
+        this.second = second;
+        this.window = window;
+        this.entryZScore = entryZScore;
+        this.exitZScore = exitZScore;
+        this.minCorrelation = minCorrelation;
+    }
+
+    @Override
+    public PortfolioGenerator newGenerator(CrossSection section) {
+        int x = column(section, first);
+        int y = column(section, second);
+        RollingCovariance returns = section.getReturnCovariance(x, y, window);
+        RollingMoments spread = new RollingMoments(1, window);
+        int[] position = {0};
+
+        return (current, weights) -> {
+            double value = Math.log(current.getClose(x) / current.getClose(y));
+            spread.update(value);
+            if (!spread.isReady(0) || !returns.isReady()) {
+                return;
+            }
+            double zScore = spread.getZScore(0, value);
+            if (Double.isNaN(zScore)) {
+                return;
+            }
+            if (position[0] != 0 && Math.abs(zScore) < exitZScore) {
+                position[0] = 0;
+                weights[x] = 0;
+                weights[y] = 0;
+            } else if (position[0] == 0 && Math.abs(zScore) > entryZScore && returns.getCorrelation() >= minCorrelation) {
+                // Short the spread when it is high, long when it is low
+                position[0] = zScore > 0 ? -1 : 1;
+                double beta = Math.abs(returns.getBeta());
+                double gross = 1 + beta;
+                weights[x] = position[0] / gross;
+                weights[y] = -position[0] * beta / gross;
+            }
+        };
+    }
+
+    private static int column(CrossSection section, String symbol) {
+        int column = section.getMatrix().indexOf(symbol);
+        if (column < 0) {
+            throw new IllegalArgumentException("No data for " + symbol);
+        }
+        return column;
+    }
+
+    @Override
+    public int getMinimumBars() {
+        return window + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "PAIRS(" + first + "/" + second + ", window=" + window + ", entry=" + entryZScore + ", exit=" + exitZScore + ")";
+    }
+}
@@ -0,0 +1,16 @@
+package com.backtest.strategy.cross;
+
+/**
+ * Incremental state of one cross-sectional strategy run. The cross-section is advanced one date at a time and
+ * the generator decides the portfolio it wants to hold at that date's close.
+ */
+public interface PortfolioGenerator {
+
+    /**
+     * Consume the current date of the cross-section
+     * @param section advanced to the current date
+     * @param weights the target weight of each symbol as a fraction of equity, negative for short positions;
+     *                holds the previous targets on entry, so a generator that doesn't rebalance can leave it alone
+     */
+    void onBar(CrossSection section, double[] weights);
+}
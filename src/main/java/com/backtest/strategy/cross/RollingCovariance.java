@@ -0,0 +1,109 @@
+package com.backtest.strategy.cross;
+
+import java.util.Arrays;
+
+/**
+ * Covariance, correlation and regression beta of two series over the last N pairs of values, updated in O(1)
+ * like {@link RollingMoments}. A pair counts only when both values are finite.
+ */
+public final class RollingCovariance {
+    private final int window;
+    private final double[] xs;
+    private final double[] ys;
+    private double sumX;
+    private double sumY;
+    private double sumXX;
+    private double sumYY;
+    private double sumXY;
+    private int count;
+    private int position;
+
+    /**
+     * @param window the number of pairs, at least 2
+     */
+    public RollingCovariance(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must be at least 2 but was " + window);
+        }
+        this.window = window;
+        this.xs = new double[window];
+        this.ys = new double[window];
+        Arrays.fill(xs, Double.NaN);
+        Arrays.fill(ys, Double.NaN);
+    }
+
+    /**
+     * Push the next pair of values
+     * @param x
+     * @param y
+     */
+    public void update(double x, double y) {
+        accumulate(xs[position], ys[position], -1);
+        xs[position] = x;
+        ys[position] = y;
+        accumulate(x, y, 1);
+        if (++position == window) {
+            position = 0;
+            sumX = sumY = sumXX = sumYY = sumXY = 0;
+            count = 0;
+            for (int i = 0; i < window; i++) {
+                accumulate(xs[i], ys[i], 1);
+            }
+        }
+    }
+
+    // Add the pair to the sums with sign 1, take it out with sign -1
+    private void accumulate(double x, double y, int sign) {
+        if (Double.isFinite(x) && Double.isFinite(y)) {
+            sumX += sign * x;
+            sumY += sign * y;
+            sumXX += sign * x * x;
+            sumYY += sign * y * y;
+            sumXY += sign * x * y;
+            count += sign;
+        }
+    }
+
+    public int getWindow() {return window;}
+
+    /**
+     * @return whether the window is full of finite pairs
+     */
+    public boolean isReady() {
+        return count == window;
+    }
+
+    /**
+     * @return the sample covariance, NaN with fewer than 2 pairs
+     */
+    public double getCovariance() {
+        return count < 2 ? Double.NaN : (sumXY - sumX * sumY / count) / (count - 1);
+    }
+
+    /**
+     * @return the Pearson correlation, NaN with fewer than 2 pairs or if either series is constant
+     */
+    public double getCorrelation() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double varianceX = sumXX - sumX * sumX / count;
+        double varianceY = sumYY - sumY * sumY / count;
+        if (!(varianceX > 0 && varianceY > 0)) {
+            return Double.NaN;
+        }
+        double correlation = (sumXY - sumX * sumY / count) / Math.sqrt(varianceX * varianceY);
+        return Math.max(-1, Math.min(1, correlation));
+    }
+
+    /**
+     * @return the slope of x regressed on y, i.e. the hedge ratio of x against y, NaN if y is constant
+     */
+    public double getBeta() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double varianceY = sumYY - sumY * sumY / count;
+        return varianceY > 0 ? (sumXY - sumX * sumY / count) / varianceY : Double.NaN;
+    }
+}
@@ -0,0 +1,149 @@
+package com.backtest.strategy.cross;
+
+import java.util.Arrays;
+
+/**
+ * Mean, variance and z-score over the last N values of many columns at once, e.g. the returns of every symbol
+ * in a universe. An update adds the new row and subtracts the row leaving the window, so it costs O(1) per
+ * column whatever the window length. The running sums are recomputed from the window once per N updates, which
+ * keeps rounding errors from accumulating at the same amortized cost.
+ * <p>
+ * Non-finite values count as missing: they occupy their slot in the window but are left out of the sums.
+ */
+public final class RollingMoments {
+    private final int width;
+    private final int window;
+    private final double[] ring;
+    private final double[] sum;
+    private final double[] sumSquares;
+    private final int[] count;
+    private int position;
+
+    /**
+     * @param width the number of columns
+     * @param window the number of values per column, at least 2
+     */
+    public RollingMoments(int width, int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must be at least 2 but was " + window);
+        }
+        this.width = width;
+        this.window = window;
+        this.ring = new double[width * window];
+        this.sum = new double[width];
+        this.sumSquares = new double[width];
+        this.count = new int[width];
+        Arrays.fill(ring, Double.NaN);
+    }
+
+    /**
+     * Push the next value of every column
+     * @param row {@link #getWidth()} values
+     */
+    public void update(double[] row) {
+        int offset = position * width;
+        for (int i = 0; i < width; i++) {
+            double old = ring[offset + i];
+            if (Double.isFinite(old)) {
+                sum[i] -= old;
+                sumSquares[i] -= old * old;
+                count[i]--;
+            }
+            double value = row[i];
+            ring[offset + i] = value;
+            if (Double.isFinite(value)) {
+                sum[i] += value;
+                sumSquares[i] += value * value;
+                count[i]++;
+            }
+        }
+        advance();
+    }
+
+    /**
+     * Push the next value, for an instance with a single column
+     * @param value
+     */
+    public void update(double value) {
+        if (width != 1) {
+            throw new IllegalStateException("Expected a row of " + width + " values");
+        }
+        double old = ring[position];
+        if (Double.isFinite(old)) {
+            sum[0] -= old;
+            sumSquares[0] -= old * old;
+            count[0]--;
+        }
+        ring[position] = value;
+        if (Double.isFinite(value)) {
+            sum[0] += value;
+            sumSquares[0] += value * value;
+            count[0]++;
+        }
+        advance();
+    }
+
+    private void advance() {
+        if (++position == window) {
+            position = 0;
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        Arrays.fill(sum, 0);
+        Arrays.fill(sumSquares, 0);
+        Arrays.fill(count, 0);
+        for (int offset = 0; offset < ring.length; offset += width) {
+            for (int i = 0; i < width; i++) {
+                double value = ring[offset + i];
+                if (Double.isFinite(value)) {
+                    sum[i] += value;
+                    sumSquares[i] += value * value;
+                    count[i]++;
+                }
+            }
+        }
+    }
+
+    public int getWidth() {return width;}
+    public int getWindow() {return window;}
+
+    /**
+     * @return whether the window of the column is full of finite values
+     */
+    public boolean isReady(int column) {
+        return count[column] == window;
+    }
+
+    /**
+     * @return the mean of the finite values in the window, NaN if there are none
+     */
+    public double getMean(int column) {
+        return count[column] == 0 ? Double.NaN : sum[column] / count[column];
+    }
+
+    /**
+     * @return the sample variance of the finite values in the window, NaN if there are fewer than 2
+     */
+    public double getVariance(int column) {
+        int n = count[column];
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double variance = (sumSquares[column] - sum[column] * sum[column] / n) / (n - 1);
+        return Math.max(0, variance);
+    }
+
+    public double getStdDev(int column) {
+        return Math.sqrt(getVariance(column));
+    }
+
+    /**
+     * @return how many standard deviations the value is from the mean of the window, NaN if the deviation is 0
+     */
+    public double getZScore(int column, double value) {
+        double stdDev = getStdDev(column);
+        return stdDev > 0 ? (value - getMean(column)) / stdDev : Double.NaN;
+    }
+}
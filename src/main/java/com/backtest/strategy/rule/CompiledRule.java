@@ -0,0 +1,50 @@
+package com.backtest.strategy.rule;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A rule compiled into a flat list of kernels, one per distinct sub-expression, plus the
+ * buy/sell condition trees over their slots. Immutable; every run gets its own {@link RuleEvaluator}.
+ */
+public final class CompiledRule {
+    private final RuleDefinition definition;
+    private final List<Supplier<Kernel>> kernels;
+    private final double[] initialSlots;
+    private final Condition buyCondition;
+    private final Condition sellCondition;
+    private final int warmUpBars;
+
+    CompiledRule(RuleDefinition definition, List<Supplier<Kernel>> kernels, double[] initialSlots,
+                 Condition buyCondition, Condition sellCondition, int warmUpBars) {
+        this.definition = definition;
+        this.kernels = List.copyOf(kernels);
+        this.initialSlots = initialSlots;
+        this.buyCondition = buyCondition;
+        this.sellCondition = sellCondition;
+        this.warmUpBars = warmUpBars;
+    }
+
+    /**
+     * @return a fresh evaluator with empty indicator state
+     */
+    public RuleEvaluator newEvaluator() {
+        Kernel[] instances = new Kernel[kernels.size()];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = kernels.get(i).get();
+        }
+        return new RuleEvaluator(instances, initialSlots.clone(), buyCondition, sellCondition);
+    }
+
+    public RuleDefinition getDefinition() {return definition;}
+
+    /**
+     * @return the number of distinct sub-expressions after common subexpression elimination
+     */
+    public int getSlotCount() {return initialSlots.length;}
+
+    /**
+     * @return the longest indicator window in the rule, i.e. the bars needed before it can fire
+     */
+    public int getWarmUpBars() {return warmUpBars;}
+}
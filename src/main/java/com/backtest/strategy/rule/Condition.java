@@ -0,0 +1,8 @@
+package com.backtest.strategy.rule;
+
+/**
+ * Compiled boolean expression evaluated against the slot values of the current and previous bar.
+ */
+interface Condition {
+    boolean test(double[] current, double[] previous);
+}
@@ -0,0 +1,12 @@
+package com.backtest.strategy.rule;
+
+import com.backtest.db.StockData;
+
+/**
+ * One step of a compiled rule. A kernel reads its operands from the slot array and writes
+ * its own value for the current bar into its output slot. Stateful kernels (rolling windows)
+ * are created per evaluator, so a compiled rule can be shared between runs.
+ */
+interface Kernel {
+    void update(double[] slots, StockData bar);
+}
@@ -0,0 +1,257 @@
+package com.backtest.strategy.rule;
+
+import com.backtest.db.StockData;
+
+import java.util.function.Supplier;
+
+/**
+ * Factories for the kernels the rule compiler emits. Every indicator is updated in O(1)
+ * (amortized for highest/lowest) per bar and reports NaN until its window is filled,
+ * which makes any comparison against it false during warm-up.
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    static Supplier<Kernel> field(String name, int out) {
+        Kernel kernel;
+        switch (name) {
+            case "open":
+                kernel = (s, bar) -> s[out] = bar.getOpen();
+                break;
+            case "high":
+                kernel = (s, bar) -> s[out] = bar.getHigh();
+                break;
+            case "low":
+                kernel = (s, bar) -> s[out] = bar.getLow();
+                break;
+            case "close":
+                kernel = (s, bar) -> s[out] = bar.getClose();
+                break;
+            case "volume":
+                kernel = (s, bar) -> s[out] = bar.getVolume();
+                break;
+            default:
+                throw new RuleSyntaxException("Unknown field '" + name + "'");
+        }
+        return () -> kernel; // Stateless, shared by all evaluators
+    }
+
+    static Supplier<Kernel> negate(int in, int out) {
+        Kernel kernel = (s, bar) -> s[out] = -s[in];
+        return () -> kernel;
+    }
+
+    static Supplier<Kernel> arithmetic(String op, int left, int right, int out) {
+        Kernel kernel;
+        switch (op) {
+            case "+":
+                kernel = (s, bar) -> s[out] = s[left] + s[right];
+                break;
+            case "-":
+                kernel = (s, bar) -> s[out] = s[left] - s[right];
+                break;
+            case "*":
+                kernel = (s, bar) -> s[out] = s[left] * s[right];
+                break;
+            case "/":
+                kernel = (s, bar) -> s[out] = s[left] / s[right];
+                break;
+            default:
+                throw new RuleSyntaxException("Unknown operator '" + op + "'");
+        }
+        return () -> kernel;
+    }
+
+    static Supplier<Kernel> indicator(String name, int in, int period, int out) {
+        switch (name) {
+            case "sma":
+                return () -> new SimpleAverage(in, period, out);
+            case "ema":
+                return () -> new ExponentialAverage(in, period, out);
+            case "rsi":
+                return () -> new RelativeStrength(in, period, out);
+            case "highest":
+                return () -> new RollingExtreme(in, period, out, true);
+            case "lowest":
+                return () -> new RollingExtreme(in, period, out, false);
+            default:
+                throw new RuleSyntaxException("Unknown function '" + name + "'");
+        }
+    }
+
+    /**
+     * Rolling mean over a ring buffer with a running sum.
+     */
+    private static final class SimpleAverage implements Kernel {
+        private final int in;
+        private final int out;
+        private final double[] window;
+        private int next;
+        private int count;
+        private double sum;
+
+        SimpleAverage(int in, int period, int out) {
+            this.in = in;
+            this.out = out;
+            this.window = new double[period];
+        }
+
+        @Override
+        public void update(double[] s, StockData bar) {
+            double value = s[in];
+            if (Double.isNaN(value)) {
+                s[out] = Double.NaN;
+                return;
+            }
+            if (count == window.length) {
+                sum -= window[next];
+            } else {
+                count++;
+            }
+            window[next] = value;
+            sum += value;
+            next = (next + 1) % window.length;
+            s[out] = count == window.length ? sum / count : Double.NaN;
+        }
+    }
+
+    /**
+     * EMA seeded with the SMA of the first 'period' values, as in ExponentialMovingAverageStrategy.
+     */
+    private static final class ExponentialAverage implements Kernel {
+        private final int in;
+        private final int out;
+        private final int period;
+        private final double multiplier;
+        private int count;
+        private double ema;
+
+        ExponentialAverage(int in, int period, int out) {
+            this.in = in;
+            this.out = out;
+            this.period = period;
+            this.multiplier = 2.0 / (period + 1);
+        }
+
+        @Override
+        public void update(double[] s, StockData bar) {
+            double value = s[in];
+            if (Double.isNaN(value)) {
+                s[out] = Double.NaN;
+                return;
+            }
+            if (count < period) {
+                ema += value;
+                count++;
+                if (count == period) ema /= period;
+            } else {
+                ema = (value - ema) * multiplier + ema;
+            }
+            s[out] = count == period ? ema : Double.NaN;
+        }
+    }
+
+    /**
+     * Wilder's RSI: simple average of the first 'period' changes, smoothed afterwards.
+     */
+    private static final class RelativeStrength implements Kernel {
+        private final int in;
+        private final int out;
+        private final int period;
+        private double previous = Double.NaN;
+        private int changes;
+        private double averageGain;
+        private double averageLoss;
+
+        RelativeStrength(int in, int period, int out) {
+            this.in = in;
+            this.out = out;
+            this.period = period;
+        }
+
+        @Override
+        public void update(double[] s, StockData bar) {
+            double value = s[in];
+            if (Double.isNaN(value)) {
+                s[out] = Double.NaN;
+                return;
+            }
+            if (Double.isNaN(previous)) {
+                previous = value;
+                s[out] = Double.NaN;
+                return;
+            }
+            double change = value - previous;
+            previous = value;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (changes < period) {
+                averageGain += gain / period;
+                averageLoss += loss / period;
+                changes++;
+            } else {
+                averageGain = (averageGain * (period - 1) + gain) / period;
+                averageLoss = (averageLoss * (period - 1) + loss) / period;
+            }
+            if (changes < period) {
+                s[out] = Double.NaN;
+            } else if (averageLoss == 0) {
+                s[out] = 100;
+            } else {
+                s[out] = 100 - 100 / (1 + averageGain / averageLoss);
+            }
+        }
+    }
+
+    /**
+     * Rolling max/min over a monotonic deque stored in two ring arrays.
+     */
+    private static final class RollingExtreme implements Kernel {
+        private final int in;
+        private final int out;
+        private final int period;
+        private final boolean highest;
+        private final double[] values;
+        private final long[] positions;
+        private int head;
+        private int size;
+        private long time;
+
+        RollingExtreme(int in, int period, int out, boolean highest) {
+            this.in = in;
+            this.out = out;
+            this.period = period;
+            this.highest = highest;
+            this.values = new double[period];
+            this.positions = new long[period];
+        }
+
+        @Override
+        public void update(double[] s, StockData bar) {
+            double value = s[in];
+            if (Double.isNaN(value)) {
+                s[out] = Double.NaN;
+                return;
+            }
+            // Drop the front if it fell out of the window
+            if (size > 0 && positions[head] <= time - period) {
+                head = (head + 1) % period;
+                size--;
+            }
+            // Drop dominated values from the back
+            while (size > 0) {
+                int back = (head + size - 1) % period;
+                if (highest ? values[back] > value : values[back] < value) break;
+                size--;
+            }
+            int tail = (head + size) % period;
+            values[tail] = value;
+            positions[tail] = time;
+            size++;
+            time++;
+            s[out] = time >= period ? values[head] : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.backtest.strategy.rule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compiles a {@link RuleDefinition} into a {@link CompiledRule}.
+ * <p>
+ * Every numeric sub-expression gets a slot in a primitive array and a kernel that computes it once per bar.
+ * Sub-expressions are identified by a canonical key (operands of + and * sorted, constants folded), so
+ * {@code sma(20)} used in both the buy and the sell clause is computed only once.
+ */
+public final class RuleCompiler {
+    private final Map<String, Integer> slotsByKey = new HashMap<>();
+    private final List<Supplier<Kernel>> kernels = new ArrayList<>();
+    private final List<Double> initialValues = new ArrayList<>();
+    // Per slot, the bar on which it first has a value, 0 for constants
+    private final List<Integer> slotWarmUps = new ArrayList<>();
+    private final int defaultPeriod;
+    private int warmUpBars = 1;
+
+    private RuleCompiler(int defaultPeriod) {
+        this.defaultPeriod = defaultPeriod;
+    }
+
+    /**
+     * Compile a parsed rule
+     * @param definition the parsed rule
+     * @param defaultPeriod the window used by indicators written without a period, e.g. sma()
+     * @return the compiled rule
+     * @throws RuleSyntaxException if the rule is not well-typed
+     */
+    public static CompiledRule compile(RuleDefinition definition, int defaultPeriod) {
+        if (defaultPeriod <= 0) {
+            throw new IllegalArgumentException("Default period must be positive");
+        }
+        RuleCompiler compiler = new RuleCompiler(defaultPeriod);
+        Condition buy = compiler.condition(definition.getBuyCondition());
+        Condition sell = definition.getSellCondition() == null ? null : compiler.condition(definition.getSellCondition());
+
+        double[] initialSlots = new double[compiler.initialValues.size()];
+        for (int i = 0; i < initialSlots.length; i++) {
+            initialSlots[i] = compiler.initialValues.get(i);
+        }
+        return new CompiledRule(definition, compiler.kernels, initialSlots, buy, sell, compiler.warmUpBars);
+    }
+
+    private Condition condition(RuleExpr expr) {
+        if (expr.getKind() == RuleExpr.Kind.UNARY && expr.getName().equals("not")) {
+            Condition operand = condition(expr.getArgs().get(0));
+            return (c, p) -> !operand.test(c, p);
+        }
+        if (expr.getKind() != RuleExpr.Kind.BINARY) {
+            throw new RuleSyntaxException("Expected a condition but found '" + expr + "'");
+        }
+
+        String op = expr.getName();
+        if (op.equals("and") || op.equals("or")) {
+            Condition left = condition(expr.getArgs().get(0));
+            Condition right = condition(expr.getArgs().get(1));
+            return op.equals("and") ? (c, p) -> left.test(c, p) && right.test(c, p)
+                                    : (c, p) -> left.test(c, p) || right.test(c, p);
+        }
+
+        int a = numeric(expr.getArgs().get(0)).slot;
+        int b = numeric(expr.getArgs().get(1)).slot;
+        switch (op) {
+            case "<":
+                return (c, p) -> c[a] < c[b];
+            case "<=":
+                return (c, p) -> c[a] <= c[b];
+            case ">":
+                return (c, p) -> c[a] > c[b];
+            case ">=":
+                return (c, p) -> c[a] >= c[b];
+            case "==":
+                return (c, p) -> c[a] == c[b];
+            case "!=":
+                return (c, p) -> c[a] != c[b];
+            case "crosses above":
+                return (c, p) -> p[a] <= p[b] && c[a] > c[b];
+            case "crosses below":
+                return (c, p) -> p[a] >= p[b] && c[a] < c[b];
+            default:
+                throw new RuleSyntaxException("Expected a condition but found '" + expr + "'");
+        }
+    }
+
+    private Operand numeric(RuleExpr expr) {
+        switch (expr.getKind()) {
+            case NUMBER:
+                return constant(expr.getValue());
+            case FIELD: {
+                String name = expr.getName();
+                Integer existing = slotsByKey.get(name);
+                if (existing != null) return new Operand(existing, name);
+                Supplier<Kernel> kernel = Kernels.field(name, initialValues.size());
+                return addSlot(name, kernel, 1);
+            }
+            case UNARY: {
+                if (!expr.getName().equals("-")) break;
+                Operand operand = numeric(expr.getArgs().get(0));
+                if (operand.constant) return constant(-operand.value);
+                String key = "-" + operand.key;
+                Integer existing = slotsByKey.get(key);
+                if (existing != null) return new Operand(existing, key);
+                return addSlot(key, Kernels.negate(operand.slot, initialValues.size()), slotWarmUps.get(operand.slot));
+            }
+            case BINARY: {
+                String op = expr.getName();
+                if ("+-*/".indexOf(op.charAt(0)) < 0 || op.length() != 1) break;
+                Operand left = numeric(expr.getArgs().get(0));
+                Operand right = numeric(expr.getArgs().get(1));
+                if (left.constant && right.constant) {
+                    return constant(fold(op, left.value, right.value));
+                }
+                // Canonical operand order for commutative operators so 'a + b' and 'b + a' share a slot
+                if ((op.equals("+") || op.equals("*")) && left.key.compareTo(right.key) > 0) {
+                    Operand swap = left;
+                    left = right;
+                    right = swap;
+                }
+                String key = "(" + left.key + op + right.key + ")";
+                Integer existing = slotsByKey.get(key);
+                if (existing != null) return new Operand(existing, key);
+                return addSlot(key, Kernels.arithmetic(op, left.slot, right.slot, initialValues.size()),
+                        Math.max(slotWarmUps.get(left.slot), slotWarmUps.get(right.slot)));
+            }
+            case CALL:
+                return indicator(expr);
+            default:
+                break;
+        }
+        throw new RuleSyntaxException("Expected a number but found '" + expr + "'");
+    }
+
+    /**
+     * Resolve the (source, period) of an indicator call: f(), f(period), f(source) or f(source, period).
+     */
+    private Operand indicator(RuleExpr call) {
+        List<RuleExpr> args = call.getArgs();
+        RuleExpr source = RuleExpr.field("close");
+        int period = defaultPeriod;
+        if (args.size() == 1) {
+            if (args.get(0).getKind() == RuleExpr.Kind.NUMBER) {
+                period = period(call, args.get(0));
+            } else {
+                source = args.get(0);
+            }
+        } else if (args.size() == 2) {
+            source = args.get(0);
+            period = period(call, args.get(1));
+        } else if (args.size() > 2) {
+            throw new RuleSyntaxException("Too many arguments in '" + call + "'");
+        }
+
+        Operand input = numeric(source);
+        String key = call.getName() + "(" + input.key + "," + period + ")";
+        Integer existing = slotsByKey.get(key);
+        if (existing != null) return new Operand(existing, key);
+        // Indicators skip their input's warm-up, then fill their own window; rsi needs one more value for its changes
+        int warmUp = Math.max(slotWarmUps.get(input.slot), 1) + period - 1 + (call.getName().equals("rsi") ? 1 : 0);
+        return addSlot(key, Kernels.indicator(call.getName(), input.slot, period, initialValues.size()), warmUp);
+    }
+
+    private static int period(RuleExpr call, RuleExpr arg) {
+        double value = arg.getKind() == RuleExpr.Kind.NUMBER ? arg.getValue() : -1;
+        if (value < 1 || value != Math.floor(value)) {
+            throw new RuleSyntaxException("Period of '" + call + "' must be a positive integer");
+        }
+        return (int) value;
+    }
+
+    private Operand constant(double value) {
+        String key = Double.toString(value);
+        Integer existing = slotsByKey.get(key);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+        } else {
+            slot = initialValues.size();
+            slotsByKey.put(key, slot);
+            initialValues.add(value); // Constants live in the initial slot values and need no kernel
+            slotWarmUps.add(0);
+        }
+        Operand operand = new Operand(slot, key);
+        operand.constant = true;
+        operand.value = value;
+        return operand;
+    }
+
+    private Operand addSlot(String key, Supplier<Kernel> kernel, int warmUp) {
+        int slot = initialValues.size();
+        slotsByKey.put(key, slot);
+        initialValues.add(Double.NaN);
+        slotWarmUps.add(warmUp);
+        warmUpBars = Math.max(warmUpBars, warmUp);
+        kernels.add(kernel);
+        return new Operand(slot, key);
+    }
+
+    private static double fold(String op, double left, double right) {
+        switch (op) {
+            case "+":
+                return left + right;
+            case "-":
+                return left - right;
+            case "*":
+                return left * right;
+            default:
+                return left / right;
+        }
+    }
+
+    private static final class Operand {
+        private final int slot;
+        private final String key;
+        private boolean constant;
+        private double value;
+
+        private Operand(int slot, String key) {
+            this.slot = slot;
+            this.key = key;
+        }
+    }
+}
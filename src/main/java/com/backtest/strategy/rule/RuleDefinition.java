@@ -0,0 +1,25 @@
+package com.backtest.strategy.rule;
+
+/**
+ * A parsed rule: the entry condition and the optional exit condition.
+ */
+public final class RuleDefinition {
+    private final String text;
+    private final RuleExpr buyCondition;
+    private final RuleExpr sellCondition; // null if the rule only exits on stop-loss / take-profit
+
+    RuleDefinition(String text, RuleExpr buyCondition, RuleExpr sellCondition) {
+        this.text = text;
+        this.buyCondition = buyCondition;
+        this.sellCondition = sellCondition;
+    }
+
+    public String getText() {return text;}
+    RuleExpr getBuyCondition() {return buyCondition;}
+    RuleExpr getSellCondition() {return sellCondition;}
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
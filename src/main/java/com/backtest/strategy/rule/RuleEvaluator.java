@@ -0,0 +1,42 @@
+package com.backtest.strategy.rule;
+
+import com.backtest.db.StockData;
+
+/**
+ * Per-run state of a compiled rule. Feed bars in date order with {@link #advance(StockData)},
+ * then query the conditions for that bar.
+ */
+public final class RuleEvaluator {
+    private final Kernel[] kernels;
+    private final double[] current;
+    private final double[] previous;
+    private final Condition buyCondition;
+    private final Condition sellCondition;
+
+    RuleEvaluator(Kernel[] kernels, double[] slots, Condition buyCondition, Condition sellCondition) {
+        this.kernels = kernels;
+        this.current = slots;
+        this.previous = slots.clone();
+        this.buyCondition = buyCondition;
+        this.sellCondition = sellCondition;
+    }
+
+    /**
+     * Update every sub-expression with the next bar
+     * @param bar the next bar in date order
+     */
+    public void advance(StockData bar) {
+        System.arraycopy(current, 0, previous, 0, current.length);
+        for (Kernel kernel : kernels) {
+            kernel.update(current, bar);
+        }
+    }
+
+    public boolean isBuySignal() {
+        return buyCondition.test(current, previous);
+    }
+
+    public boolean isSellSignal() {
+        return sellCondition != null && sellCondition.test(current, previous);
+    }
+}
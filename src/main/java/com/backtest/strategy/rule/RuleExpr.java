@@ -0,0 +1,69 @@
+package com.backtest.strategy.rule;
+
+import java.util.List;
+
+/**
+ * Node of a parsed rule expression. Numeric and boolean nodes share this class,
+ * the compiler checks which one is expected where.
+ */
+public final class RuleExpr {
+    enum Kind { NUMBER, FIELD, CALL, UNARY, BINARY }
+
+    private final Kind kind;
+    private final String name; // field, function or operator name
+    private final double value;
+    private final List<RuleExpr> args;
+
+    private RuleExpr(Kind kind, String name, double value, List<RuleExpr> args) {
+        this.kind = kind;
+        this.name = name;
+        this.value = value;
+        this.args = args;
+    }
+
+    static RuleExpr number(double value) {
+        return new RuleExpr(Kind.NUMBER, null, value, List.of());
+    }
+
+    static RuleExpr field(String name) {
+        return new RuleExpr(Kind.FIELD, name, 0, List.of());
+    }
+
+    static RuleExpr call(String name, List<RuleExpr> args) {
+        return new RuleExpr(Kind.CALL, name, 0, List.copyOf(args));
+    }
+
+    static RuleExpr unary(String op, RuleExpr operand) {
+        return new RuleExpr(Kind.UNARY, op, 0, List.of(operand));
+    }
+
+    static RuleExpr binary(String op, RuleExpr left, RuleExpr right) {
+        return new RuleExpr(Kind.BINARY, op, 0, List.of(left, right));
+    }
+
+    Kind getKind() {return kind;}
+    String getName() {return name;}
+    double getValue() {return value;}
+    List<RuleExpr> getArgs() {return args;}
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case NUMBER:
+                return Double.toString(value);
+            case FIELD:
+                return name;
+            case UNARY:
+                return name + " " + args.get(0);
+            case BINARY:
+                return "(" + args.get(0) + " " + name + " " + args.get(1) + ")";
+            default:
+                StringBuilder sb = new StringBuilder(name).append('(');
+                for (int i = 0; i < args.size(); i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(args.get(i));
+                }
+                return sb.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.backtest.strategy.rule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recursive descent parser for the strategy rule language, e.g.
+ * <pre>
+ *   buy when close &lt; sma(20) and rsi(14) &lt; 30; sell when close &gt; sma(20)
+ * </pre>
+ * A rule has a mandatory {@code buy} clause and an optional {@code sell} clause separated by ';'.
+ * Conditions combine comparisons ({@code < <= > >= == !=}, {@code crosses above}, {@code crosses below})
+ * with {@code and}, {@code or} and {@code not}; operands are arithmetic over numbers, the bar fields
+ * {@code open high low close volume} and the indicators {@code sma ema rsi highest lowest}.
+ */
+public final class RuleParser {
+    private static final String EOF = "";
+
+    private final String text;
+    private final List<String> tokens;
+    private int position;
+
+    private RuleParser(String text) {
+        this.text = text;
+        this.tokens = tokenize(text);
+    }
+
+    /**
+     * Parse a rule text
+     * @param text the rule source
+     * @return the parsed rule definition
+     * @throws RuleSyntaxException if the text is not a valid rule
+     */
+    public static RuleDefinition parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new RuleSyntaxException("Rule is empty");
+        }
+        return new RuleParser(text.trim()).parseRule();
+    }
+
+    private RuleDefinition parseRule() {
+        RuleExpr buy = null;
+        RuleExpr sell = null;
+        do {
+            if (peek().equals(EOF)) break; // Allow a trailing ';'
+            String side = next();
+            expect("when");
+            RuleExpr condition = parseOr();
+            if (side.equals("buy") && buy == null) {
+                buy = condition;
+            } else if (side.equals("sell") && sell == null) {
+                sell = condition;
+            } else {
+                throw error("Unexpected or duplicate clause '" + side + "'");
+            }
+        } while (accept(";"));
+
+        if (!peek().equals(EOF)) {
+            throw error("Unexpected '" + peek() + "'");
+        }
+        if (buy == null) {
+            throw new RuleSyntaxException("Rule has no 'buy when' clause: " + text);
+        }
+        return new RuleDefinition(text, buy, sell);
+    }
+
+    private RuleExpr parseOr() {
+        RuleExpr left = parseAnd();
+        while (accept("or")) {
+            left = RuleExpr.binary("or", left, parseAnd());
+        }
+        return left;
+    }
+
+    private RuleExpr parseAnd() {
+        RuleExpr left = parseNot();
+        while (accept("and")) {
+            left = RuleExpr.binary("and", left, parseNot());
+        }
+        return left;
+    }
+
+    private RuleExpr parseNot() {
+        if (accept("not")) {
+            return RuleExpr.unary("not", parseNot());
+        }
+        return parseComparison();
+    }
+
+    private RuleExpr parseComparison() {
+        RuleExpr left = parseAdditive();
+        String op = peek();
+        switch (op) {
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+            case "==":
+            case "!=":
+                next();
+                return RuleExpr.binary(op, left, parseAdditive());
+            case "crosses":
+                next();
+                String direction = next();
+                if (!direction.equals("above") && !direction.equals("below")) {
+                    throw error("Expected 'above' or 'below' after 'crosses'");
+                }
+                return RuleExpr.binary("crosses " + direction, left, parseAdditive());
+            default:
+                return left;
+        }
+    }
+
+    private RuleExpr parseAdditive() {
+        RuleExpr left = parseMultiplicative();
+        while (peek().equals("+") || peek().equals("-")) {
+            left = RuleExpr.binary(next(), left, parseMultiplicative());
+        }
+        return left;
+    }
+
+    private RuleExpr parseMultiplicative() {
+        RuleExpr left = parseUnary();
+        while (peek().equals("*") || peek().equals("/")) {
+            left = RuleExpr.binary(next(), left, parseUnary());
+        }
+        return left;
+    }
+
+    private RuleExpr parseUnary() {
+        if (accept("-")) {
+            return RuleExpr.unary("-", parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private RuleExpr parsePrimary() {
+        String token = next();
+        if (token.equals(EOF)) {
+            throw error("Unexpected end of rule");
+        }
+        if (token.equals("(")) {
+            RuleExpr inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        char first = token.charAt(0);
+        if (Character.isDigit(first) || first == '.') {
+            try {
+                return RuleExpr.number(Double.parseDouble(token));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number '" + token + "'");
+            }
+        }
+        if (!Character.isLetter(first) && first != '_') {
+            throw error("Unexpected '" + token + "'");
+        }
+        if (accept("(")) {
+            List<RuleExpr> args = new ArrayList<>();
+            if (!accept(")")) {
+                do {
+                    args.add(parseOr());
+                } while (accept(","));
+                expect(")");
+            }
+            return RuleExpr.call(token, args);
+        }
+        return RuleExpr.field(token);
+    }
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : EOF;
+    }
+
+    private String next() {
+        String token = peek();
+        if (position < tokens.size()) position++;
+        return token;
+    }
+
+    private boolean accept(String token) {
+        if (peek().equals(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected '" + token + "' but found '" + peek() + "'");
+        }
+    }
+
+    private RuleSyntaxException error(String message) {
+        return new RuleSyntaxException(message + " (token " + position + ") in rule: " + text);
+    }
+
+    /**
+     * Split the rule into tokens. Words are lower-cased so keywords and names are case-insensitive.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) i++;
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else if (Character.isDigit(c) || c == '.') {
+                int start = i;
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) i++;
+                tokens.add(text.substring(start, i));
+            } else if ((c == '<' || c == '>' || c == '=' || c == '!') && i + 1 < text.length() && text.charAt(i + 1) == '=') {
+                tokens.add(text.substring(i, i + 2));
+                i += 2;
+            } else if ("<>+-*/(),;".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                throw new RuleSyntaxException("Unexpected character '" + c + "' at " + i + " in rule: " + text);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,12 @@
+package com.backtest.strategy.rule;
+
+/**
+ * Thrown when a strategy rule cannot be parsed or compiled.
+ */
+public class RuleSyntaxException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public RuleSyntaxException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,76 @@
+package com.backtest.util;
+
+/**
+ * Sorting of index arrays by primitive keys, without boxing or comparator calls.
+ */
+public final class PrimitiveSort {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private PrimitiveSort() {
+    }
+
+    /**
+     * Sort indexes[from, to) so that keys[indexes[i]] is descending. NaN keys sort last.
+     * @param keys
+     * @param indexes
+     * @param from inclusive
+     * @param to exclusive
+     */
+    public static void sortIndexesDescending(double[] keys, int[] indexes, int from, int to) {
+        quickSort(keys, indexes, from, to - 1);
+    }
+
+    private static void quickSort(double[] keys, int[] indexes, int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            // Median of three as pivot
+            int middle = (low + high) >>> 1;
+            if (before(keys, indexes[middle], indexes[low])) swap(indexes, middle, low);
+            if (before(keys, indexes[high], indexes[low])) swap(indexes, high, low);
+            if (before(keys, indexes[high], indexes[middle])) swap(indexes, high, middle);
+            double pivot = key(keys, indexes[middle]);
+
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (key(keys, indexes[i]) > pivot) i++;
+                while (key(keys, indexes[j]) < pivot) j--;
+                if (i <= j) {
+                    swap(indexes, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - low < high - i) {
+                quickSort(keys, indexes, low, j);
+                low = i;
+            } else {
+                quickSort(keys, indexes, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            int index = indexes[i];
+            double value = key(keys, index);
+            int j = i - 1;
+            while (j >= low && key(keys, indexes[j]) < value) {
+                indexes[j + 1] = indexes[j];
+                j--;
+            }
+            indexes[j + 1] = index;
+        }
+    }
+
+    private static double key(double[] keys, int index) {
+        double value = keys[index];
+        return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+    }
+
+    private static boolean before(double[] keys, int a, int b) {
+        return key(keys, a) > key(keys, b);
+    }
+
+    private static void swap(int[] indexes, int a, int b) {
+        int tmp = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = tmp;
+    }
+}
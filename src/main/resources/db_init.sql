@@ -7,4 +7,35 @@ CREATE TABLE IF NOT EXISTS historical_price_data(
     low DOUBLE NOT NULL,
     close DOUBLE NOT NULL,
     volume BIGINT NOT NULL
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_price_symbol_date ON historical_price_data(symbol, trade_date);
+
+CREATE TABLE IF NOT EXISTS price_series_fingerprint(
+    symbol VARCHAR(10) PRIMARY KEY,
+    row_count BIGINT NOT NULL,
+    checksum BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS backtest_result_cache(
+    cache_key VARCHAR(64) PRIMARY KEY,
+    symbol VARCHAR(10) NOT NULL,
+    series_rows BIGINT NOT NULL,
+    series_checksum BIGINT NOT NULL,
+    result VARBINARY(64) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_result_cache_symbol ON backtest_result_cache(symbol);
+
+-- Replaced by price_history_blocks, which holds the compacted bars instead of a copy of the rows
+DROP TABLE IF EXISTS price_series_blocks;
+
+CREATE TABLE IF NOT EXISTS price_history_blocks(
+    symbol VARCHAR(10) NOT NULL,
+    block_no INT NOT NULL,
+    first_date DATE NOT NULL,
+    last_date DATE NOT NULL,
+    row_count INT NOT NULL,
+    data VARBINARY NOT NULL,
+    PRIMARY KEY (symbol, block_no)
+);